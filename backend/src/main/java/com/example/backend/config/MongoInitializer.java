@@ -0,0 +1,282 @@
+package com.example.backend.config;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.example.backend.model.Comment;
+import com.example.backend.model.Post;
+import com.example.backend.model.TimelineEntry;
+import com.example.backend.model.UploadSession;
+import com.example.backend.service.LikeCounts;
+import com.example.backend.service.PostCommentService;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * Ensures the indexes the query paths rely on and applies one-off data
+ * backfills. Runs off the main thread after startup so an unreachable
+ * cluster does not block or fail the boot.
+ */
+@Component
+public class MongoInitializer {
+    private static final Logger logger = Logger.getLogger(MongoInitializer.class.getName());
+    // Embedded comments of a post whose migration has started
+    private static final String MIGRATING_COMMENTS = "migratingComments";
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoInitializer(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        CompletableFuture.runAsync(this::ensureIndexes)
+                .thenRun(this::backfillLikeCounts)
+                .thenRun(this::migrateLegacyComments)
+                .exceptionally(e -> {
+                    logger.log(Level.WARNING, "Failed to initialize MongoDB: " + e.getMessage());
+                    return null;
+                });
+    }
+
+    void ensureIndexes() {
+        // Keyset pagination of the home feed
+        mongoTemplate.indexOps("posts").ensureIndex(new Index()
+                .on("createdAt", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("createdAt_id"));
+
+        // Paged comment reads per post
+        mongoTemplate.indexOps(Comment.class).ensureIndex(new Index()
+                .on("postId", Sort.Direction.ASC)
+                .on("createdAt", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("postId_createdAt_id"));
+
+        // Follower timelines: range scans per owner, idempotent backfills, cleanup on delete
+        mongoTemplate.indexOps(TimelineEntry.class).ensureIndex(new Index()
+                .on("ownerId", Sort.Direction.ASC)
+                .on("createdAt", Sort.Direction.DESC)
+                .on("postId", Sort.Direction.DESC)
+                .named("ownerId_createdAt_postId"));
+        mongoTemplate.indexOps(TimelineEntry.class).ensureIndex(new Index()
+                .on("ownerId", Sort.Direction.ASC)
+                .on("postId", Sort.Direction.ASC)
+                .unique()
+                .named("ownerId_postId"));
+        mongoTemplate.indexOps(TimelineEntry.class).ensureIndex(new Index()
+                .on("postId", Sort.Direction.ASC)
+                .named("postId"));
+
+        // Posts per author, used for celebrity merges and profile listings
+        mongoTemplate.indexOps("posts").ensureIndex(new Index()
+                .on("userId", Sort.Direction.ASC)
+                .on("createdAt", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("userId_createdAt_id"));
+
+        // Reverse follower lookups
+        mongoTemplate.indexOps("users").ensureIndex(new Index()
+                .on("followers", Sort.Direction.ASC)
+                .named("followers"));
+
+        // Resized image variants by original and width
+        mongoTemplate.indexOps("media.files").ensureIndex(new Index()
+                .on("metadata.variantOf", Sort.Direction.ASC)
+                .on("metadata.width", Sort.Direction.ASC)
+                .sparse()
+                .named("variantOf_width"));
+
+        // Chunks written by resumable uploads; matches the index the GridFS driver creates
+        mongoTemplate.indexOps("media.chunks").ensureIndex(new Index()
+                .on("files_id", Sort.Direction.ASC)
+                .on("n", Sort.Direction.ASC)
+                .unique()
+                .named("files_id_1_n_1"));
+
+        // Claiming completed uploads and expiring abandoned ones
+        mongoTemplate.indexOps(UploadSession.class).ensureIndex(new Index()
+                .on("fileId", Sort.Direction.ASC)
+                .named("fileId"));
+        mongoTemplate.indexOps(UploadSession.class).ensureIndex(new Index()
+                .on("updatedAt", Sort.Direction.ASC)
+                .named("updatedAt"));
+
+        // Releasing a deduplicated upload looks its blob up by file
+        mongoTemplate.indexOps("media_blobs").ensureIndex(new Index()
+                .on("fileId", Sort.Direction.ASC)
+                .named("fileId"));
+
+        // Background media releases: claiming due jobs, and the reconciler skipping queued files
+        mongoTemplate.indexOps("media_gc_queue").ensureIndex(new Index()
+                .on("runAt", Sort.Direction.ASC)
+                .named("runAt"));
+        mongoTemplate.indexOps("media_gc_queue").ensureIndex(new Index()
+                .on("fileId", Sort.Direction.ASC)
+                .named("fileId"));
+
+        // Reference checks by the media reconciler
+        mongoTemplate.indexOps("posts").ensureIndex(new Index()
+                .on("mediaIds", Sort.Direction.ASC)
+                .named("mediaIds"));
+        mongoTemplate.indexOps("posts").ensureIndex(new Index()
+                .on("videoUrl", Sort.Direction.ASC)
+                .sparse()
+                .named("videoUrl"));
+        mongoTemplate.indexOps("tutorials").ensureIndex(new Index()
+                .on("mediaIds", Sort.Direction.ASC)
+                .named("mediaIds"));
+        mongoTemplate.indexOps("tutorials").ensureIndex(new Index()
+                .on("videoUrl", Sort.Direction.ASC)
+                .sparse()
+                .named("videoUrl"));
+        mongoTemplate.indexOps("tutorials").ensureIndex(new Index()
+                .on("imageUrls", Sort.Direction.ASC)
+                .named("imageUrls"));
+        mongoTemplate.indexOps("users").ensureIndex(new Index()
+                .on("profilePicture", Sort.Direction.ASC)
+                .sparse()
+                .named("profilePicture"));
+        mongoTemplate.indexOps("products").ensureIndex(new Index()
+                .on("imageUrls", Sort.Direction.ASC)
+                .named("imageUrls"));
+    }
+
+    void backfillLikeCounts() {
+        // Derives the counter of posts no like has touched since it was introduced
+        UpdateResult result = mongoTemplate.updateMulti(LikeCounts.missing(), LikeCounts.fromLikedByUsers(), "posts");
+        if (result.getModifiedCount() > 0) {
+            logger.log(Level.INFO, "Backfilled likeCount on {0} posts", result.getModifiedCount());
+        }
+    }
+
+    void migrateLegacyComments() {
+        // Posts used to embed every comment as a "userId|name: text" string
+        Query legacy = new Query(new Criteria().orOperator(
+                Criteria.where("comments").exists(true), Criteria.where(MIGRATING_COMMENTS).exists(true)));
+        legacy.fields().include("_id");
+        int migrated = 0;
+
+        try (Stream<Document> posts = mongoTemplate.stream(legacy, Document.class, "posts")) {
+            for (Document post : (Iterable<Document>) posts::iterator) {
+                if (migrateComments(post.getObjectId("_id"))) {
+                    migrated++;
+                }
+            }
+        }
+        if (migrated > 0) {
+            logger.log(Level.INFO, "Moved embedded comments of {0} posts to the comments collection", migrated);
+        }
+    }
+
+    /**
+     * Moves one post's embedded comments. The post is claimed by renaming
+     * the field, so other instances skip it and a crash leaves the comments
+     * in place for the next run. Comments get ids derived from the post and
+     * their position, so repeating a run upserts the same documents, and
+     * only the run that clears the claim adds to the post's counters.
+     */
+    private boolean migrateComments(ObjectId postObjectId) {
+        Query claim = new Query(Criteria.where("_id").is(postObjectId).and("comments").exists(true));
+        claim.fields().include(MIGRATING_COMMENTS, "createdAt");
+        Document post = mongoTemplate.findAndModify(claim, new Update().rename("comments", MIGRATING_COMMENTS),
+                FindAndModifyOptions.options().returnNew(true), Document.class, "posts");
+        if (post == null) {
+            // Claimed by a run that stopped before finishing
+            Query unfinished = new Query(Criteria.where("_id").is(postObjectId).and(MIGRATING_COMMENTS).exists(true));
+            unfinished.fields().include(MIGRATING_COMMENTS, "createdAt");
+            post = mongoTemplate.findOne(unfinished, Document.class, "posts");
+            if (post == null) {
+                return false;
+            }
+        }
+
+        String postId = postObjectId.toHexString();
+        List<?> rawComments = post.getList(MIGRATING_COMMENTS, Object.class, Collections.emptyList());
+        Date postCreatedAt = post.getDate("createdAt");
+        LocalDateTime base = postCreatedAt != null
+                ? LocalDateTime.ofInstant(postCreatedAt.toInstant(), ZoneId.systemDefault())
+                : LocalDateTime.now();
+
+        List<Comment> comments = new ArrayList<>();
+        for (int i = 0; i < rawComments.size(); i++) {
+            if (rawComments.get(i) instanceof String raw) {
+                // Keep the original order by spacing creation times a millisecond apart
+                Comment comment = parseLegacyComment(postId, raw, base.plusNanos((i + 1) * 1_000_000L));
+                comment.setId(legacyCommentId(postObjectId, i).toHexString());
+                comments.add(mongoTemplate.save(comment));
+            }
+        }
+
+        // Merged into latestComments by date, so comments added since startup are kept
+        Update finish = new Update()
+                .inc("commentCount", comments.size())
+                .unset(MIGRATING_COMMENTS);
+        if (!comments.isEmpty()) {
+            finish.push("latestComments")
+                    .sort(Sort.by("createdAt"))
+                    .slice(-PostCommentService.LATEST_COMMENTS_LIMIT)
+                    .each(comments.toArray());
+        }
+        return mongoTemplate.updateFirst(
+                new Query(Criteria.where("_id").is(postObjectId).and(MIGRATING_COMMENTS).exists(true)),
+                finish, Post.class).getModifiedCount() > 0;
+    }
+
+    /**
+     * A stable ObjectId for the index-th embedded comment of a post, keeping
+     * the post's timestamp so ids still sort roughly by age.
+     */
+    private ObjectId legacyCommentId(ObjectId postId, int index) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest((postId.toHexString() + ":" + index).getBytes(StandardCharsets.UTF_8));
+            ByteBuffer id = ByteBuffer.allocate(12);
+            id.putInt(postId.getTimestamp());
+            id.put(hash, 0, 8);
+            return new ObjectId(id.array());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private Comment parseLegacyComment(String postId, String raw, LocalDateTime createdAt) {
+        int separator = raw.indexOf('|');
+        String userId = separator >= 0 ? raw.substring(0, separator) : null;
+        String rest = raw.substring(separator + 1);
+        int colon = rest.indexOf(": ");
+
+        Comment comment = new Comment();
+        comment.setPostId(postId);
+        comment.setUserId(userId);
+        comment.setAuthorName(colon >= 0 ? rest.substring(0, colon) : null);
+        comment.setContent(colon >= 0 ? rest.substring(colon + 2) : rest);
+        comment.setCreatedAt(createdAt);
+        return comment;
+    }
+}
@@ -80,6 +80,7 @@ public class SecurityConfig {
             "If-Match",
             "If-None-Match",
             "If-Modified-Since",
+            "If-Range",
             "Cache-Control",
             "Content-Range",
             "Range",
@@ -91,7 +92,8 @@ public class SecurityConfig {
             "Content-Range",
             "Accept-Ranges",
             "Content-Disposition",
-            "Content-Length"
+            "Content-Length",
+            "ETag"
         ));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
@@ -47,7 +47,7 @@ public class WebConfig implements WebMvcConfigurer {
                 )
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
-                .exposedHeaders("Content-Range", "Accept-Ranges", "Content-Disposition", "Content-Length")
+                .exposedHeaders("Content-Range", "Accept-Ranges", "Content-Disposition", "Content-Length", "ETag")
                 .maxAge(3600)
                 .allowCredentials(true);
     }
@@ -0,0 +1,136 @@
+package com.example.backend.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.backend.model.ErrorResponse;
+import com.example.backend.model.UploadSession;
+import com.example.backend.service.MediaUploadService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Resumable video uploads: create a session, PUT the numbered chunks in any
+ * order (retrying as needed), then complete it. The returned media id is
+ * passed as videoId when creating a post or tutorial. Videos can also be
+ * sent in one multipart request to /stream, which is parsed as it arrives.
+ */
+@RestController
+@RequestMapping("/api/media/uploads")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+public class MediaUploadController {
+    private static final Logger logger = Logger.getLogger(MediaUploadController.class.getName());
+
+    private final MediaUploadService mediaUploadService;
+
+    public MediaUploadController(MediaUploadService mediaUploadService) {
+        this.mediaUploadService = mediaUploadService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createUpload(@RequestBody Map<String, Object> request) {
+        try {
+            Object size = request.get("size");
+            if (!(size instanceof Number)) {
+                return ResponseEntity.badRequest().body(new ErrorResponse("Size is required"));
+            }
+            UploadSession session = mediaUploadService.createSession(
+                    (String) request.get("userId"),
+                    (String) request.get("filename"),
+                    (String) request.get("contentType"),
+                    ((Number) size).longValue());
+            return ResponseEntity.status(HttpStatus.CREATED).body(toStatus(session));
+        } catch (IllegalArgumentException | ClassCastException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Error creating upload session", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PostMapping(path = "/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> streamUpload(HttpServletRequest request) {
+        try {
+            UploadSession session = mediaUploadService.ingest(request.getContentType(), request.getInputStream());
+            return ResponseEntity.status(HttpStatus.CREATED).body(toStatus(session));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Error streaming upload", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<?> getUpload(@PathVariable String uploadId) {
+        try {
+            UploadSession session = mediaUploadService.getSession(uploadId);
+            Map<String, Object> status = toStatus(session);
+            if (UploadSession.UPLOADING.equals(session.getStatus())) {
+                status.put("receivedChunks", mediaUploadService.getReceivedChunks(session));
+            }
+            return ResponseEntity.ok(status);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PutMapping("/{uploadId}/chunks/{index}")
+    public ResponseEntity<?> uploadChunk(
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            HttpServletRequest request) {
+        try {
+            mediaUploadService.writeChunk(uploadId, index, request.getInputStream());
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Error storing chunk " + index + " of upload " + uploadId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<?> completeUpload(@PathVariable String uploadId) {
+        try {
+            String mediaId = mediaUploadService.complete(uploadId);
+            Map<String, String> response = new HashMap<>();
+            response.put("mediaId", mediaId);
+            response.put("url", "/api/media/" + mediaId);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Error completing upload " + uploadId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    private Map<String, Object> toStatus(UploadSession session) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("uploadId", session.getId());
+        status.put("status", session.getStatus());
+        status.put("chunkSize", session.getChunkSize());
+        status.put("totalChunks", session.getTotalChunks());
+        status.put("totalSize", session.getTotalSize());
+        if (UploadSession.COMPLETE.equals(session.getStatus())) {
+            status.put("mediaId", session.getFileId());
+        }
+        return status;
+    }
+}
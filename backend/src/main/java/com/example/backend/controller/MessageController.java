@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -19,6 +20,9 @@ public class MessageController {
     @Autowired
     private MessageService messageService;
 
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+
     @PostMapping
     public ResponseEntity<Message> createMessage(@RequestBody MessageRequest request) {
         Message message = messageService.createMessage(
@@ -84,6 +88,15 @@ public class MessageController {
         }
     }
 
+    @GetMapping(value = "/user/{userId}", produces = NdjsonWriter.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUserMessages(@PathVariable String userId) {
+        if (userId == null || userId.trim().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ndjsonWriter.stream(() -> messageService.streamUserMessages(userId),
+            messageService::enrichMessageBatch);
+    }
+
     @GetMapping("/buyer/{buyerId}")
     public ResponseEntity<List<Message>> getBuyerMessages(@PathVariable String buyerId) {
         return ResponseEntity.ok(messageService.getBuyerMessages(buyerId));
@@ -94,6 +107,12 @@ public class MessageController {
         return ResponseEntity.ok(messageService.getMessageHistory(userId));
     }
 
+    @GetMapping(value = "/history/{userId}", produces = NdjsonWriter.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamMessageHistory(@PathVariable String userId) {
+        return ndjsonWriter.stream(() -> messageService.streamMessageHistory(userId),
+            messageService::enrichMessageBatch);
+    }
+
     @GetMapping("/conversations/{userId}")
     public ResponseEntity<?> getGroupedConversations(@PathVariable String userId) {
         try {
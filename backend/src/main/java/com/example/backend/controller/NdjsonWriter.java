@@ -0,0 +1,85 @@
+package com.example.backend.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes list endpoints as newline-delimited JSON while a Mongo cursor is
+ * being read. Documents are converted in small batches so only one batch is
+ * held in memory per request, whatever the size of the result.
+ */
+@Component
+public class NdjsonWriter {
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    static final int BATCH_SIZE = 100;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
+
+    public NdjsonWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * The source is opened on the thread that writes the response and closed
+     * once the last line is written, so the database cursor never outlives it.
+     */
+    public <T> ResponseEntity<StreamingResponseBody> stream(
+            Supplier<Stream<T>> source, Function<List<T>, List<?>> converter) {
+        StreamingResponseBody body = out -> {
+            try (Stream<T> documents = source.get();
+                 JsonGenerator generator = createGenerator(out)) {
+                List<T> batch = new ArrayList<>(BATCH_SIZE);
+                Iterator<T> iterator = documents.iterator();
+                while (iterator.hasNext()) {
+                    batch.add(iterator.next());
+                    if (batch.size() == BATCH_SIZE) {
+                        writeBatch(generator, converter.apply(batch));
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    writeBatch(generator, converter.apply(batch));
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        // The servlet container owns the response stream
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+
+    private void writeBatch(JsonGenerator generator, List<?> items) throws IOException {
+        for (Object item : items) {
+            objectWriter.writeValue(generator, item);
+            generator.writeRaw('\n');
+        }
+        // Push each batch to the client instead of buffering the whole response
+        generator.flush();
+    }
+}
@@ -1,19 +1,18 @@
 package com.example.backend.controller;
 
-import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.bson.types.ObjectId;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -26,27 +25,56 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.backend.model.ByteRange;
+import com.example.backend.model.Comment;
+import com.example.backend.model.CursorPage;
+import com.example.backend.model.FeedCursor;
+import com.example.backend.model.LikeResult;
 import com.example.backend.model.PostResponse;
+import com.example.backend.service.ImageVariantService;
+import com.example.backend.service.MediaDiskCache;
+import com.example.backend.service.MediaMemoryCache;
+import com.example.backend.service.MediaService;
 import com.example.backend.service.NotificationService;
 import com.example.backend.service.PostService;
-import com.mongodb.client.gridfs.GridFSBucket;
-import com.mongodb.client.gridfs.GridFSDownloadStream;
+import com.example.backend.service.ResourceVersionService;
+import com.example.backend.service.VideoFaststartService;
 import com.mongodb.client.gridfs.model.GridFSFile;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
 public class PostController {
     private static final Logger logger = Logger.getLogger(PostController.class.getName());
+    private static final long MAX_OPEN_RANGE_BYTES = 1024 * 1024;
+    private static final int MAX_RANGES = 16;
     private final PostService postService;
-    private final GridFSBucket gridFSBucket;
+    private final MediaService mediaService;
+    private final MediaMemoryCache mediaMemoryCache;
+    private final MediaDiskCache mediaDiskCache;
+    private final ImageVariantService imageVariantService;
+    private final VideoFaststartService videoFaststartService;
     private final NotificationService notificationService;
+    private final ResourceVersionService resourceVersionService;
+    private final NdjsonWriter ndjsonWriter;
 
-    public PostController(PostService postService, GridFSBucket gridFSBucket, NotificationService notificationService) {
+    public PostController(PostService postService, MediaService mediaService, MediaMemoryCache mediaMemoryCache,
+            MediaDiskCache mediaDiskCache, ImageVariantService imageVariantService,
+            VideoFaststartService videoFaststartService, NotificationService notificationService, ResourceVersionService resourceVersionService,
+            NdjsonWriter ndjsonWriter) {
         this.postService = postService;
-        this.gridFSBucket = gridFSBucket;
+        this.mediaService = mediaService;
+        this.mediaMemoryCache = mediaMemoryCache;
+        this.mediaDiskCache = mediaDiskCache;
+        this.imageVariantService = imageVariantService;
+        this.videoFaststartService = videoFaststartService;
         this.notificationService = notificationService;
+        this.resourceVersionService = resourceVersionService;
+        this.ndjsonWriter = ndjsonWriter;
     }
 
     @PostMapping("/posts")
@@ -54,7 +82,8 @@ public class PostController {
             @RequestParam("userId") String userId,
             @RequestParam("content") String content,
             @RequestParam(value = "images", required = false) List<MultipartFile> images,
-            @RequestParam(value = "video", required = false) MultipartFile video) {
+            @RequestParam(value = "video", required = false) MultipartFile video,
+            @RequestParam(value = "videoId", required = false) String videoId) {
         try {
             if (userId == null || userId.isEmpty()) {
                 return ResponseEntity.badRequest().build();
@@ -66,7 +95,7 @@ public class PostController {
                     new Object[]{video.getOriginalFilename(), video.getSize(), video.getContentType()});
             }
 
-            PostResponse post = postService.createPost(userId, content, images, video);
+            PostResponse post = postService.createPost(userId, content, images, video, videoId);
             logger.log(Level.INFO, "Post created successfully with ID: {0}", post.getId());
             return ResponseEntity.ok(post);
         } catch (IllegalArgumentException e) {
@@ -79,15 +108,63 @@ public class PostController {
     }
 
     @GetMapping("/posts")
-    public ResponseEntity<List<PostResponse>> getAllPosts() {
+    public ResponseEntity<?> getAllPosts(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "all", defaultValue = "false") boolean all,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+            Authentication authentication) {
         try {
-            return ResponseEntity.ok(postService.getAllPosts());
+            // isLiked depends on the viewer, so the viewer is part of the tag
+            String viewer = authentication != null ? authentication.getName() : null;
+            String etag = resourceVersionService.etag(ResourceVersionService.POSTS, cursor, limit, all, viewer);
+            if (resourceVersionService.isNotModified(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            // Unpaginated listing is only served when explicitly requested
+            Object body = all ? postService.getAllPosts() : postService.getFeedPage(cursor, limit);
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .body(body);
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Invalid feed request: {0}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error fetching posts: " + e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    @GetMapping(value = "/posts", produces = NdjsonWriter.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamPosts(@RequestParam(value = "cursor", required = false) String cursor) {
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                FeedCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                logger.log(Level.WARNING, "Invalid feed request: {0}", e.getMessage());
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return ndjsonWriter.stream(() -> postService.streamFeed(cursor), postService::convertToPostResponses);
+    }
+
+    @GetMapping("/posts/timeline/{userId}")
+    public ResponseEntity<CursorPage<PostResponse>> getTimeline(
+            @PathVariable String userId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(postService.getTimeline(userId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Invalid timeline request: {0}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error fetching timeline: " + e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/posts/user/{userId}")
     public ResponseEntity<List<PostResponse>> getUserPosts(@PathVariable String userId) {
         return ResponseEntity.ok(postService.getUserPosts(userId));
@@ -120,11 +197,11 @@ public class PostController {
     }
 
     @PostMapping("/posts/{postId}/like")
-    public ResponseEntity<PostResponse> toggleLike(
+    public ResponseEntity<LikeResult> toggleLike(
             @PathVariable String postId,
             @RequestParam String userId) {
         try {
-            PostResponse response = postService.toggleLike(postId, userId);
+            LikeResult response = postService.toggleLike(postId, userId);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             logger.log(Level.WARNING, "Error toggling like: " + e.getMessage());
@@ -132,6 +209,19 @@ public class PostController {
         }
     }
 
+    @GetMapping("/posts/{postId}/comments")
+    public ResponseEntity<CursorPage<Comment>> getComments(
+            @PathVariable String postId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(postService.getComments(postId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Invalid comments request: {0}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping("/posts/{postId}/comments")
     public ResponseEntity<PostResponse> addComment(
             @PathVariable String postId,
@@ -171,20 +261,20 @@ public class PostController {
         }
     }
 
-    @PutMapping("/posts/{postId}/comments/{commentIndex}")
+    @PutMapping("/posts/{postId}/comments/{commentId}")
     public ResponseEntity<PostResponse> updateComment(
             @PathVariable String postId,
-            @PathVariable int commentIndex,
+            @PathVariable String commentId,
             @RequestParam String userId,
             @RequestParam String content) {
         try {
             // Validate comment ownership and post ownership
-            if (!postService.canModifyComment(postId, commentIndex, userId)) {
+            if (!postService.canModifyComment(postId, commentId, userId)) {
                 logger.log(Level.WARNING, "Unauthorized attempt to update comment by user: " + userId);
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            PostResponse response = postService.updateComment(postId, commentIndex, userId, content);
+            PostResponse response = postService.updateComment(postId, commentId, userId, content);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             logger.log(Level.WARNING, "Error updating comment: " + e.getMessage());
@@ -192,19 +282,19 @@ public class PostController {
         }
     }
 
-    @DeleteMapping("/posts/{postId}/comments/{commentIndex}")
+    @DeleteMapping("/posts/{postId}/comments/{commentId}")
     public ResponseEntity<PostResponse> deleteComment(
             @PathVariable String postId,
-            @PathVariable int commentIndex,
+            @PathVariable String commentId,
             @RequestParam String userId) {
         try {
             // Validate comment ownership and post ownership
-            if (!postService.canModifyComment(postId, commentIndex, userId)) {
+            if (!postService.canModifyComment(postId, commentId, userId)) {
                 logger.log(Level.WARNING, "Unauthorized attempt to delete comment by user: " + userId);
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            PostResponse response = postService.deleteComment(postId, commentIndex, userId);
+            PostResponse response = postService.deleteComment(postId, commentId, userId);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             logger.log(Level.WARNING, "Error deleting comment: " + e.getMessage());
@@ -212,10 +302,10 @@ public class PostController {
         }
     }
 
-    @DeleteMapping("/posts/{postId}/comments/{commentIndex}/profile")
+    @DeleteMapping("/posts/{postId}/comments/{commentId}/profile")
     public ResponseEntity<PostResponse> deleteProfileComment(
             @PathVariable String postId,
-            @PathVariable int commentIndex,
+            @PathVariable String commentId,
             @RequestParam String userId) {
         try {
             // Check if user owns the post
@@ -224,7 +314,7 @@ public class PostController {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
             }
 
-            PostResponse response = postService.deleteComment(postId, commentIndex, userId);
+            PostResponse response = postService.deleteComment(postId, commentId, userId);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             logger.log(Level.WARNING, "Error deleting comment from profile: " + e.getMessage());
@@ -259,7 +349,7 @@ public class PostController {
             String userId = payload.get("userId");
             String reactionType = payload.get("reactionType");
             
-            if (userId == null || reactionType == null) {
+            if (userId == null || reactionType == null || reactionType.isBlank()) {
                 return ResponseEntity.badRequest().build();
             }
             
@@ -290,61 +380,124 @@ public class PostController {
     }
 
     @GetMapping("/media/{mediaId}")
-    public ResponseEntity<Resource> getMedia(
+    public ResponseEntity<StreamingResponseBody> getMedia(
             @PathVariable String mediaId,
-            @RequestHeader(value = "Range", required = false) String rangeHeader) {
+            @RequestParam(value = "w", required = false) Integer width,
+            @RequestHeader(value = "Range", required = false) String rangeHeader,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+            @RequestHeader(value = "If-Range", required = false) String ifRange,
+            HttpServletRequest request) {
         try {
             if (!ObjectId.isValid(mediaId)) {
                 return ResponseEntity.badRequest().build();
             }
 
             ObjectId objectId = new ObjectId(mediaId);
-            GridFSFile file = gridFSBucket.find(new org.bson.Document("_id", objectId)).first();
+            GridFSFile original = mediaService.findFile(objectId);
 
-            if (file == null) {
+            if (original == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            long contentLength = file.getLength();
-            long start = 0;
-            long end = contentLength - 1;
-            long chunkSize = Math.min(1024 * 1024, contentLength);
+            // Sized requests get the narrowest generated variant that is wide enough
+            GridFSFile variant = width != null && width > 0 ? imageVariantService.findVariant(objectId, width) : null;
+            // Videos are served from their faststart copy once it exists
+            GridFSFile file = variant != null ? variant : videoFaststartService.resolve(original);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.add("Accept-Ranges", "bytes");
+            if (width != null && variant == null && imageVariantService.mayHaveVariant(original, width)) {
+                // The variant may not be generated yet, so the original must not be cached for good
+                headers.setCacheControl(CacheControl.noCache());
+            } else {
+                headers.setCacheControl(mediaService.getCacheControl());
+            }
+            String etag = mediaService.etag(file);
+            headers.setETag(etag);
+            long lastModified = file.getUploadDate().getTime();
+            headers.setLastModified(lastModified);
+
+            if (isNotModified(request, ifNoneMatch, etag, lastModified)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+            }
+            // A Range conditioned on another version falls back to the full file
+            if (rangeHeader != null && ifRange != null && !ifRange.equals(etag)
+                    && !ifRange.equals(headers.getFirst(HttpHeaders.LAST_MODIFIED))) {
+                rangeHeader = null;
+            }
 
+            long contentLength = file.getLength();
+            List<ByteRange> ranges = List.of(new ByteRange(0, contentLength - 1));
             if (rangeHeader != null) {
-                String[] ranges = rangeHeader.replace("bytes=", "").split("-");
-                start = Long.parseLong(ranges[0]);
-                if (ranges.length > 1) {
-                    end = Long.parseLong(ranges[1]);
+                List<ByteRange> requested = ByteRange.parse(rangeHeader, contentLength, MAX_OPEN_RANGE_BYTES,
+                        MAX_RANGES);
+                if (requested == null) {
+                    // A Range header we cannot use is ignored and the whole file is sent
+                    rangeHeader = null;
+                } else if (requested.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + contentLength)
+                            .build();
                 } else {
-                    end = Math.min(start + chunkSize - 1, contentLength - 1);
+                    ranges = requested;
                 }
             }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.add("Accept-Ranges", "bytes");
-            headers.add("Content-Range", String.format("bytes %d-%d/%d", start, end, contentLength));
-            headers.setContentLength(end - start + 1);
-            headers.setCacheControl(CacheControl.noCache());
-            
             // Set proper content type
-            String contentType = determineContentType(file.getFilename(), file.getMetadata());
-            headers.setContentType(MediaType.parseMediaType(contentType));
-
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            try (GridFSDownloadStream downloadStream = gridFSBucket.openDownloadStream(objectId)) {
-                downloadStream.skip(start);
-                byte[] buffer = new byte[4096];
-                int bytesRead;
-                long totalRead = 0;
-                while (totalRead < (end - start + 1) && (bytesRead = downloadStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, (int) Math.min(bytesRead, (end - start + 1) - totalRead));
-                    totalRead += bytesRead;
+            String contentType = mediaService.determineContentType(file.getFilename(), file.getMetadata());
+
+            // Bytes come from the memory cache, a file on local disk, or straight from the media store
+            StreamingResponseBody body;
+            if (ranges.size() > 1) {
+                String boundary = new ObjectId().toHexString();
+                List<ByteRange> selected = ranges;
+                headers.setContentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary));
+                headers.setContentLength(mediaService.multipartLength(ranges, contentLength, contentType, boundary));
+                body = out -> mediaService.copyRanges(file, selected, contentType, boundary, out);
+            } else {
+                ByteRange range = ranges.get(0);
+                if (rangeHeader != null) {
+                    headers.add("Content-Range", range.toContentRange(contentLength));
+                }
+                headers.setContentType(MediaType.parseMediaType(contentType));
+                headers.setContentLength(range.getLength());
+
+                MediaMemoryCache.Entry hot = mediaMemoryCache.acquire(file);
+                // A store that keeps files locally needs no disk cache copy
+                Path local = hot == null ? mediaService.localPath(file) : null;
+                // Pinned so eviction cannot delete the file before the response has read it
+                MediaDiskCache.Entry cached = hot == null && local == null ? mediaDiskCache.acquire(file) : null;
+                Path onDisk = local != null ? local : cached != null ? cached.getPath() : null;
+                if (hot != null) {
+                    body = out -> {
+                        try {
+                            mediaMemoryCache.write(hot, range, out);
+                        } finally {
+                            mediaMemoryCache.release(hot);
+                        }
+                    };
+                } else if (onDisk != null && mediaDiskCache.trySendfile(request, onDisk, range)) {
+                    if (cached != null) {
+                        mediaDiskCache.releaseAfterSendfile(cached);
+                    }
+                    body = null;
+                } else if (onDisk != null) {
+                    body = out -> {
+                        try {
+                            mediaDiskCache.transfer(onDisk, range, out);
+                        } finally {
+                            if (cached != null) {
+                                mediaDiskCache.release(cached);
+                            }
+                        }
+                    };
+                } else {
+                    body = out -> mediaService.copyRange(file, range, out);
                 }
             }
-
             return ResponseEntity.status(rangeHeader != null ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
                     .headers(headers)
-                    .body(new ByteArrayResource(outputStream.toByteArray()));
+                    .body(body);
 
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error retrieving media: " + mediaId, e);
@@ -352,32 +505,17 @@ public class PostController {
         }
     }
 
-    private String determineContentType(String filename, org.bson.Document metadata) {
-        String defaultType = "application/octet-stream";
-        
+    private boolean isNotModified(HttpServletRequest request, String ifNoneMatch, String etag, long lastModified) {
+        // If-Modified-Since only applies when no entity tags were sent
+        if (ifNoneMatch != null) {
+            return resourceVersionService.isNotModified(ifNoneMatch, etag);
+        }
         try {
-            if (metadata != null) {
-                String contentType = metadata.getString("contentType");
-                if (contentType != null) return contentType;
-                
-                String type = metadata.getString("type");
-                if ("image".equals(type)) return "image/jpeg";
-                if ("video".equals(type)) return "video/mp4";
-            }
-
-            if (filename != null) {
-                String lower = filename.toLowerCase();
-                if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) return "image/jpeg";
-                if (lower.endsWith(".png")) return "image/png";
-                if (lower.endsWith(".gif")) return "image/gif";
-                if (lower.endsWith(".webp")) return "image/webp";
-                if (lower.endsWith(".mp4")) return "video/mp4";
-                if (lower.endsWith(".mov")) return "video/quicktime";
-            }
-        } catch (Exception e) {
-            logger.log(Level.WARNING, "Error determining content type", e);
+            long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            // Header dates have second precision
+            return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
         }
-
-        return defaultType;
     }
-}
\ No newline at end of file
+}
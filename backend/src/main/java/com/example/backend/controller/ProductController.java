@@ -2,25 +2,19 @@ package com.example.backend.controller;
 
 import com.example.backend.model.Product;
 import com.example.backend.repository.ProductRepository;
+import com.example.backend.service.MediaService;
+import com.example.backend.service.ResourceVersionService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import jakarta.annotation.PostConstruct;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/products")
@@ -30,21 +24,23 @@ public class ProductController {
     @Autowired
     private ProductRepository productRepository;
 
-    @Value("${upload.directory}")
-    private String uploadDirectory;
+    @Autowired
+    private ResourceVersionService resourceVersionService;
 
-    @PostConstruct
-    public void init() {
-        try {
-            Files.createDirectories(Paths.get(uploadDirectory));
-        } catch (IOException e) {
-            throw new RuntimeException("Could not create upload directory!", e);
-        }
-    }
+    @Autowired
+    private MediaService mediaService;
 
     @GetMapping
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    public ResponseEntity<List<Product>> getAllProducts(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        String etag = resourceVersionService.etag(ResourceVersionService.PRODUCTS);
+        if (resourceVersionService.isNotModified(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(productRepository.findAll());
     }
 
     @GetMapping("/{id}")
@@ -75,16 +71,9 @@ public class ProductController {
             List<String> imageUrls = new ArrayList<>();
             if (images != null && !images.isEmpty()) {
                 for (MultipartFile image : images) {
-                    String fileName = UUID.randomUUID() + "_" + image.getOriginalFilename();
-                    Path uploadPath = Paths.get(uploadDirectory);
-                    
-                    if (!Files.exists(uploadPath)) {
-                        Files.createDirectories(uploadPath);
-                    }
-                    
-                    Path filePath = uploadPath.resolve(fileName);
-                    Files.copy(image.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-                    imageUrls.add("/api/uploads/" + fileName);
+                    // Stored like other media; images from before this are still served from upload.directory
+                    String imageId = mediaService.saveMedia(image, "image");
+                    imageUrls.add("/api/media/" + imageId);
                 }
             }
 
@@ -100,6 +89,7 @@ public class ProductController {
             product.setImageUrls(imageUrls);
 
             Product savedProduct = productRepository.save(product);
+            resourceVersionService.bump(ResourceVersionService.PRODUCTS);
             return ResponseEntity.ok(savedProduct);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -121,15 +111,14 @@ public class ProductController {
             if (images != null && !images.isEmpty()) {
                 List<String> imageUrls = new ArrayList<>();
                 for (MultipartFile image : images) {
-                    String fileName = UUID.randomUUID() + "_" + image.getOriginalFilename();
-                    Path filePath = Paths.get(uploadDirectory).resolve(fileName);
-                    Files.copy(image.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-                    imageUrls.add("/api/uploads/" + fileName);
+                    String imageId = mediaService.saveMedia(image, "image");
+                    imageUrls.add("/api/media/" + imageId);
                 }
                 product.setImageUrls(imageUrls);
             }
             
             Product updatedProduct = productRepository.save(product);
+            resourceVersionService.bump(ResourceVersionService.PRODUCTS);
             return ResponseEntity.ok(updatedProduct);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -140,5 +129,6 @@ public class ProductController {
     @DeleteMapping("/{id}")
     public void deleteProduct(@PathVariable String id) {
         productRepository.deleteById(id);
+        resourceVersionService.bump(ResourceVersionService.PRODUCTS);
     }
 }
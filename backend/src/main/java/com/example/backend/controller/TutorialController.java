@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -22,6 +23,7 @@ import org.springframework.web.multipart.MultipartFile;
 import com.example.backend.model.Tutorial;
 import com.example.backend.model.UserProgress;
 import com.example.backend.model.ErrorResponse;
+import com.example.backend.service.ResourceVersionService;
 import com.example.backend.service.TutorialService;
 
 @RestController
@@ -32,6 +34,9 @@ public class TutorialController {
     @Autowired
     private TutorialService tutorialService;
 
+    @Autowired
+    private ResourceVersionService resourceVersionService;
+
     @PostMapping
     public ResponseEntity<Tutorial> createTutorial(
             @RequestParam("userId") String userId,
@@ -41,10 +46,11 @@ public class TutorialController {
             @RequestParam("materials") List<String> materials,
             @RequestParam("craftType") String craftType,
             @RequestParam(value = "video", required = false) MultipartFile video,
+            @RequestParam(value = "videoId", required = false) String videoId,
             @RequestParam(value = "images", required = false) List<MultipartFile> images) {
         try {
             Tutorial tutorial = tutorialService.createTutorial(
-                userId, title, description, steps, materials, craftType, video, images);
+                userId, title, description, steps, materials, craftType, video, videoId, images);
             return ResponseEntity.ok(tutorial);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -62,10 +68,18 @@ public class TutorialController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Tutorial>> getAllTutorials() {
+    public ResponseEntity<List<Tutorial>> getAllTutorials(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
+            String etag = resourceVersionService.etag(ResourceVersionService.TUTORIALS);
+            if (resourceVersionService.isNotModified(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
             List<Tutorial> tutorials = tutorialService.getAllTutorials();
-            return ResponseEntity.ok(tutorials);
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .body(tutorials);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -115,13 +129,14 @@ public class TutorialController {
         @RequestParam(value = "materials", required = false) List<String> materials,
         @RequestParam(value = "images", required = false) List<MultipartFile> images,
         @RequestParam(value = "video", required = false) MultipartFile video,
+        @RequestParam(value = "videoId", required = false) String videoId,
         @RequestParam(value = "keepExistingImages", defaultValue = "true") boolean keepExistingImages,
         @RequestParam(value = "keepExistingVideo", defaultValue = "true") boolean keepExistingVideo
     ) {
         try {
             Tutorial updatedTutorial = tutorialService.updateTutorial(
                 id, title, description, steps, materials, craftType,
-                video, images, keepExistingImages, keepExistingVideo);
+                video, videoId, images, keepExistingImages, keepExistingVideo);
             return ResponseEntity.ok(updatedTutorial);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
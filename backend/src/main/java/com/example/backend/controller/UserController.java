@@ -1,16 +1,20 @@
 package com.example.backend.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.example.backend.model.User;
 import com.example.backend.repository.UserRepository;
+import com.example.backend.service.ResourceVersionService;
+import com.example.backend.service.TimelineService;
 import com.example.backend.service.UserService;
-import com.mongodb.client.gridfs.GridFSBucket;
+import com.example.backend.service.UserSummaryService;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -20,14 +24,22 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
 public class UserController {
     private final UserService userService;
-    private final GridFSBucket gridFSBucket;
+    private final UserSummaryService userSummaryService;
+    private final TimelineService timelineService;
+    private final ResourceVersionService resourceVersionService;
+    private final NdjsonWriter ndjsonWriter;
 
     @Autowired
     private UserRepository userRepository;
 
-    public UserController(UserService userService, GridFSBucket gridFSBucket) {
+    public UserController(UserService userService,
+            UserSummaryService userSummaryService, TimelineService timelineService,
+            ResourceVersionService resourceVersionService, NdjsonWriter ndjsonWriter) {
         this.userService = userService;
-        this.gridFSBucket = gridFSBucket;
+        this.userSummaryService = userSummaryService;
+        this.timelineService = timelineService;
+        this.resourceVersionService = resourceVersionService;
+        this.ndjsonWriter = ndjsonWriter;
     }
 
     @PutMapping("/{userId}/profile-picture")
@@ -36,6 +48,7 @@ public class UserController {
             @RequestParam("image") MultipartFile image) {
         try {
             String profilePicture = userService.updateProfilePicture(userId, image);
+            bumpUserVersions(userId);
             return ResponseEntity.ok().body(new ProfilePictureResponse(profilePicture));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -61,6 +74,8 @@ public class UserController {
             user.setFirstName(request.getFirstName());
             user.setLastName(request.getLastName());
             userRepository.save(user);
+            userSummaryService.invalidate(user.getId());
+            bumpUserVersions(user.getId());
             
             return ResponseEntity.ok().build();
         } catch (Exception e) {
@@ -72,18 +87,26 @@ public class UserController {
     public ResponseEntity<List<Map<String, Object>>> getSuggestedUsers() {
         List<User> users = userRepository.findAll();
         List<Map<String, Object>> suggestions = users.stream()
-            .map(user -> {
-                Map<String, Object> userMap = new HashMap<>();
-                userMap.put("id", user.getId());
-                userMap.put("name", user.getFirstName() + " " + user.getLastName());
-                userMap.put("profilePicture", user.getProfilePicture());
-                userMap.put("bio", user.getBio()); // Add bio to response
-                return userMap;
-            })
+            .map(this::toSuggestion)
             .collect(Collectors.toList());
         return ResponseEntity.ok(suggestions);
     }
 
+    @GetMapping(value = "/suggestions", produces = NdjsonWriter.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSuggestedUsers() {
+        return ndjsonWriter.stream(userRepository::streamSuggestionFields,
+            users -> users.stream().map(this::toSuggestion).collect(Collectors.toList()));
+    }
+
+    private Map<String, Object> toSuggestion(User user) {
+        Map<String, Object> userMap = new HashMap<>();
+        userMap.put("id", user.getId());
+        userMap.put("name", user.getFirstName() + " " + user.getLastName());
+        userMap.put("profilePicture", user.getProfilePicture());
+        userMap.put("bio", user.getBio()); // Add bio to response
+        return userMap;
+    }
+
     @PostMapping("/{userId}/follow")
     public ResponseEntity<?> followUser(@PathVariable String userId, @RequestBody Map<String, String> body) {
         try {
@@ -106,6 +129,8 @@ public class UserController {
             followers.add(followerId);
             userToFollow.setFollowers(followers);
             userRepository.save(userToFollow);
+            timelineService.onFollow(followerId, userId);
+            resourceVersionService.bump(ResourceVersionService.user(userId));
             
             return ResponseEntity.ok().build();
         } catch (Exception e) {
@@ -120,6 +145,8 @@ public class UserController {
                     .orElseThrow(() -> new RuntimeException("User not found"));
             user.setBio(request.getBio());
             userRepository.save(user);
+            userSummaryService.invalidate(userId);
+            resourceVersionService.bump(ResourceVersionService.user(userId));
             return ResponseEntity.ok(Collections.singletonMap("bio", user.getBio()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -166,8 +193,14 @@ public class UserController {
     }
 
     @GetMapping("/{userId}")
-    public ResponseEntity<?> getUserProfile(@PathVariable String userId) {
+    public ResponseEntity<?> getUserProfile(
+            @PathVariable String userId,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
+            String etag = resourceVersionService.etag(ResourceVersionService.user(userId));
+            if (resourceVersionService.isNotModified(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
             User user = userRepository.findById(userId)
                     .orElseThrow(() -> new RuntimeException("User not found"));
             
@@ -180,7 +213,10 @@ public class UserController {
             response.put("profilePicture", user.getProfilePicture());
             response.put("followers", user.getFollowers() != null ? user.getFollowers().size() : 0);
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .body(response);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("message", e.getMessage());
@@ -191,6 +227,12 @@ public class UserController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         }
     }
+
+    private void bumpUserVersions(String userId) {
+        resourceVersionService.bump(ResourceVersionService.user(userId));
+        // Feed entries embed the author's name and avatar
+        resourceVersionService.bump(ResourceVersionService.POSTS);
+    }
 }
 
 class ProfilePictureResponse {
@@ -0,0 +1,110 @@
+package com.example.backend.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An inclusive byte range of a stored media file, resolved against its length.
+ */
+public class ByteRange {
+    private static final Pattern RANGE_SPEC = Pattern.compile("(\\d*)\\s*-\\s*(\\d*)");
+
+    private final long start;
+    private final long end;
+
+    public ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    public String toContentRange(long totalLength) {
+        return "bytes " + start + "-" + end + "/" + totalLength;
+    }
+
+    /**
+     * Parses a "bytes=" header with one or more comma-separated ranges. An
+     * open-ended range is capped at maxOpenLength bytes so players fetch
+     * large files progressively. Overlapping or adjacent ranges are merged
+     * and the result is sorted by start.
+     *
+     * @return null if the header is malformed or asks for more than maxRanges
+     *         ranges, so the caller can ignore it and send the whole file; an
+     *         empty list if it is well formed but no range can be satisfied
+     */
+    public static List<ByteRange> parse(String rangeHeader, long totalLength, long maxOpenLength, int maxRanges) {
+        if (!rangeHeader.startsWith("bytes=")) {
+            return null;
+        }
+        String[] specs = rangeHeader.substring("bytes=".length()).split(",", -1);
+        if (specs.length > maxRanges) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>();
+        for (String spec : specs) {
+            Matcher matcher = RANGE_SPEC.matcher(spec.trim());
+            if (!matcher.matches() || matcher.group(1).isEmpty() && matcher.group(2).isEmpty()) {
+                return null;
+            }
+            long from;
+            long to;
+            try {
+                from = matcher.group(1).isEmpty() ? -1 : Long.parseLong(matcher.group(1));
+                to = matcher.group(2).isEmpty() ? -1 : Long.parseLong(matcher.group(2));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (from >= 0 && to >= 0 && to < from) {
+                return null;
+            }
+
+            // Ranges past the end are skipped; the request fails only if none remain
+            if (from < 0) {
+                // Suffix range: the last N bytes
+                if (to > 0 && totalLength > 0) {
+                    ranges.add(new ByteRange(Math.max(0, totalLength - to), totalLength - 1));
+                }
+            } else if (from < totalLength) {
+                long end = to < 0
+                        ? from + Math.min(maxOpenLength, totalLength - from) - 1
+                        : Math.min(to, totalLength - 1);
+                ranges.add(new ByteRange(from, end));
+            }
+        }
+        return coalesce(ranges);
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(ByteRange::getStart));
+        List<ByteRange> merged = new ArrayList<>();
+        ByteRange current = ranges.get(0);
+        for (ByteRange next : ranges.subList(1, ranges.size())) {
+            if (next.start <= current.end + 1) {
+                current = new ByteRange(current.start, Math.max(current.end, next.end));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+}
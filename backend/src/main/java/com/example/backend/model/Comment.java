@@ -2,8 +2,14 @@ package com.example.backend.model;
 
 import java.time.LocalDateTime;
 
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Document(collection = "comments")
 public class Comment {
+    @Id
     private String id;
+    private String postId;
     private String userId;
     private String content;
     private LocalDateTime createdAt;
@@ -19,6 +25,14 @@ public class Comment {
         this.id = id;
     }
 
+    public String getPostId() {
+        return postId;
+    }
+
+    public void setPostId(String postId) {
+        this.postId = postId;
+    }
+
     public String getUserId() {
         return userId;
     }
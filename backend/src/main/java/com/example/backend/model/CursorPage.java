@@ -0,0 +1,38 @@
+package com.example.backend.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CursorPage<T> {
+    private List<T> items = new ArrayList<>();
+    private String nextCursor; // null when there are no more items
+
+    public CursorPage() {
+    }
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items != null ? items : new ArrayList<>();
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and setters
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean getHasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.backend.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+/**
+ * Keyset position in a list ordered by (createdAt desc, _id desc).
+ * Clients only ever see the encoded, opaque form. Documents without a
+ * createdAt sort after all dated ones, as they do in Mongo.
+ */
+public class FeedCursor {
+    private final LocalDateTime createdAt;
+    private final String id;
+
+    public FeedCursor(LocalDateTime createdAt, String id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public ObjectId getObjectId() {
+        return new ObjectId(id);
+    }
+
+    /**
+     * Matches everything that sorts after this position in (createdAt desc, idField desc) order.
+     */
+    public Criteria olderThan(String idField, Object idValue) {
+        if (createdAt == null) {
+            return Criteria.where("createdAt").is(null).and(idField).lt(idValue);
+        }
+        return new Criteria().orOperator(
+                Criteria.where("createdAt").lt(createdAt),
+                Criteria.where("createdAt").is(createdAt).and(idField).lt(idValue),
+                Criteria.where("createdAt").is(null));
+    }
+
+    public String encode() {
+        String raw = (createdAt != null ? createdAt.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static FeedCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 2 || !ObjectId.isValid(parts[1])) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new FeedCursor(parts[0].isEmpty() ? null : LocalDateTime.parse(parts[0]), parts[1]);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
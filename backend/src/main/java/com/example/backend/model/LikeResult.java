@@ -0,0 +1,41 @@
+package com.example.backend.model;
+
+public class LikeResult {
+    private String postId;
+    private int likeCount;
+    private boolean isLiked;
+
+    public LikeResult() {
+    }
+
+    public LikeResult(String postId, int likeCount, boolean isLiked) {
+        this.postId = postId;
+        this.likeCount = likeCount;
+        this.isLiked = isLiked;
+    }
+
+    // Getters and setters
+    public String getPostId() {
+        return postId;
+    }
+
+    public void setPostId(String postId) {
+        this.postId = postId;
+    }
+
+    public int getLikeCount() {
+        return likeCount;
+    }
+
+    public void setLikeCount(int likeCount) {
+        this.likeCount = likeCount;
+    }
+
+    public boolean getIsLiked() {
+        return isLiked;
+    }
+
+    public void setIsLiked(boolean isLiked) {
+        this.isLiked = isLiked;
+    }
+}
@@ -21,7 +21,9 @@ public class Post {
     private List<String> imageUrls = new ArrayList<>();
     private List<String> mediaIds = new ArrayList<>(); // Store GridFS IDs
     private Set<String> likedByUsers = new HashSet<>(); // Replace the likes field
-    private List<String> comments = new ArrayList<>();
+    private Integer likeCount; // Maintained atomically alongside likedByUsers
+    private List<Comment> latestComments = new ArrayList<>(); // Newest few, oldest first; the rest live in "comments"
+    private int commentCount;
     private LocalDateTime createdAt = LocalDateTime.now();
     private Map<String, Reaction> userReactions = new HashMap<>();
     private Map<String, Integer> reactionCounts = new HashMap<>();
@@ -31,7 +33,7 @@ public class Post {
 
     // Constructor for PostResponse
     public Post(String id, String userId, String content, String videoUrl, List<String> imageUrls,
-            List<String> mediaIds, Set<String> likedByUsers, List<String> comments, LocalDateTime createdAt) {
+            List<String> mediaIds, Set<String> likedByUsers, List<Comment> latestComments, LocalDateTime createdAt) {
         this.id = id;
         this.userId = userId;
         this.content = content;
@@ -39,7 +41,7 @@ public class Post {
         this.imageUrls = imageUrls != null ? imageUrls : new ArrayList<>();
         this.mediaIds = mediaIds != null ? mediaIds : new ArrayList<>();
         this.likedByUsers = likedByUsers != null ? likedByUsers : new HashSet<>();
-        this.comments = comments != null ? comments : new ArrayList<>();
+        this.latestComments = latestComments != null ? latestComments : new ArrayList<>();
         this.createdAt = createdAt;
     }
 
@@ -101,19 +103,38 @@ public class Post {
     }
 
     public int getLikeCount() {
+        if (likeCount != null) {
+            return likeCount;
+        }
         return likedByUsers != null ? likedByUsers.size() : 0;
     }
 
+    public boolean hasLikeCount() {
+        return likeCount != null;
+    }
+
+    public void setLikeCount(Integer likeCount) {
+        this.likeCount = likeCount;
+    }
+
     public boolean isLikedByUser(String userId) {
         return likedByUsers != null && likedByUsers.contains(userId);
     }
 
-    public List<String> getComments() {
-        return comments;
+    public List<Comment> getLatestComments() {
+        return latestComments;
+    }
+
+    public void setLatestComments(List<Comment> latestComments) {
+        this.latestComments = latestComments;
+    }
+
+    public int getCommentCount() {
+        return commentCount;
     }
 
-    public void setComments(List<String> comments) {
-        this.comments = comments;
+    public void setCommentCount(int commentCount) {
+        this.commentCount = commentCount;
     }
 
     public LocalDateTime getCreatedAt() {
@@ -15,7 +15,8 @@ public class PostResponse {
     private String videoUrl;
     private List<String> imageUrls = new ArrayList<>();
     private List<String> mediaIds = new ArrayList<>();
-    private List<String> comments = new ArrayList<>();
+    private List<Comment> comments = new ArrayList<>();
+    private int commentCount;
     private LocalDateTime createdAt;
     private int likeCount;
     private boolean isLiked;
@@ -32,7 +33,8 @@ public class PostResponse {
         this.videoUrl = post.getVideoUrl();
         this.imageUrls = post.getImageUrls();
         this.mediaIds = post.getMediaIds();
-        this.comments = post.getComments();
+        this.comments = post.getLatestComments();
+        this.commentCount = post.getCommentCount();
         this.createdAt = post.getCreatedAt();
     }
 
@@ -43,7 +45,8 @@ public class PostResponse {
         this.videoUrl = post.getVideoUrl();
         this.imageUrls = post.getImageUrls();
         this.mediaIds = post.getMediaIds();
-        this.comments = post.getComments();
+        this.comments = post.getLatestComments();
+        this.commentCount = post.getCommentCount();
         this.createdAt = post.getCreatedAt();
         this.likeCount = post.getLikeCount();
         this.isLiked = post.isLikedByUser(currentUserId);
@@ -116,14 +119,22 @@ public class PostResponse {
         this.mediaIds = mediaIds;
     }
 
-    public List<String> getComments() {
+    public List<Comment> getComments() {
         return comments;
     }
 
-    public void setComments(List<String> comments) {
+    public void setComments(List<Comment> comments) {
         this.comments = comments;
     }
 
+    public int getCommentCount() {
+        return commentCount;
+    }
+
+    public void setCommentCount(int commentCount) {
+        this.commentCount = commentCount;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,67 @@
+package com.example.backend.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Document(collection = "timelines")
+public class TimelineEntry {
+    @Id
+    private String id;
+    private String ownerId;  // User whose timeline this entry belongs to
+    private String postId;
+    private String authorId;
+    private LocalDateTime createdAt; // Copied from the post so timelines sort without a join
+
+    public TimelineEntry() {
+    }
+
+    public TimelineEntry(String ownerId, Post post) {
+        this.ownerId = ownerId;
+        this.postId = post.getId();
+        this.authorId = post.getUserId();
+        this.createdAt = post.getCreatedAt();
+    }
+
+    // Getters and setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(String ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public String getPostId() {
+        return postId;
+    }
+
+    public void setPostId(String postId) {
+        this.postId = postId;
+    }
+
+    public String getAuthorId() {
+        return authorId;
+    }
+
+    public void setAuthorId(String authorId) {
+        this.authorId = authorId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
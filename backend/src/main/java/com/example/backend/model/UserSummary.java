@@ -0,0 +1,58 @@
+package com.example.backend.model;
+
+/**
+ * Read-only projection of a user with just the fields needed to render an author.
+ */
+public class UserSummary {
+    private String id;
+    private String firstName;
+    private String lastName;
+    private String profilePicture;
+
+    public UserSummary() {
+    }
+
+    public UserSummary(String id, String firstName, String lastName, String profilePicture) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.profilePicture = profilePicture;
+    }
+
+    // Getters and setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getProfilePicture() {
+        return profilePicture;
+    }
+
+    public void setProfilePicture(String profilePicture) {
+        this.profilePicture = profilePicture;
+    }
+
+    public String getFullName() {
+        return firstName + " " + lastName;
+    }
+}
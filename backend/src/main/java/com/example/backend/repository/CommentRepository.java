@@ -0,0 +1,14 @@
+package com.example.backend.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.example.backend.model.Comment;
+
+import java.util.List;
+
+public interface CommentRepository extends MongoRepository<Comment, String> {
+    List<Comment> findByPostIdOrderByCreatedAtDescIdDesc(String postId, Pageable pageable);
+
+    void deleteByPostId(String postId);
+}
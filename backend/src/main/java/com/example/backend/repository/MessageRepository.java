@@ -4,6 +4,7 @@ import com.example.backend.model.Message;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface MessageRepository extends MongoRepository<Message, String> {
 
@@ -25,10 +26,16 @@ public interface MessageRepository extends MongoRepository<Message, String> {
 
     List<Message> findByBuyerIdOrSellerIdOrderByCreatedAtDesc(String userId1, String userId2);
 
+    Stream<Message> streamByBuyerIdOrSellerIdOrderByCreatedAtDesc(String userId1, String userId2);
+
     @Query(value = "{ $or: [ {'senderId': ?0}, {'receiverId': ?0} ] }",
            sort = "{ 'createdAt': -1 }")
     List<Message> findMessageHistory(String userId);
 
+    @Query(value = "{ $or: [ {'senderId': ?0}, {'receiverId': ?0} ] }",
+           sort = "{ 'createdAt': -1 }")
+    Stream<Message> streamMessageHistory(String userId);
+
     @Query("{ $or: [ " +
            "{ 'senderId': ?0, 'receiverId': ?1 }, " +
            "{ 'senderId': ?1, 'receiverId': ?0 } " +
@@ -2,11 +2,16 @@ package com.example.backend.repository;
 
 import com.example.backend.model.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends MongoRepository<User, String> {
     Optional<User> findByEmail(String email);
 
     boolean existsByEmail(String email);
+
+    @Query(value = "{}", fields = "{ 'firstName': 1, 'lastName': 1, 'profilePicture': 1, 'bio': 1 }")
+    Stream<User> streamSuggestionFields();
 }
\ No newline at end of file
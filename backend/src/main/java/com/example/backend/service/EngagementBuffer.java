@@ -0,0 +1,473 @@
+package com.example.backend.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.model.LikeResult;
+import com.example.backend.model.Post;
+import com.example.backend.model.PostResponse;
+import com.example.backend.model.Reaction;
+import com.mongodb.bulk.BulkWriteResult;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind buffer for likes and reactions. A change is applied to an
+ * in-memory view of the post at once and answered from there; a scheduled
+ * flush then writes each user's net change as a guarded bulk update, so a
+ * burst of toggles on one post costs a few writes per interval.
+ *
+ * Posts are guarded by striped locks. Entries are dropped once they are
+ * flushed and clean, so the next touch reloads the stored state.
+ */
+@Service
+public class EngagementBuffer {
+    private static final Logger logger = Logger.getLogger(EngagementBuffer.class.getName());
+    private static final int SHUTDOWN_FLUSH_ATTEMPTS = 3;
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final ReentrantLock[] stripes;
+    private final Map<String, PostState> posts = new ConcurrentHashMap<>();
+    private final Timer flushTimer;
+    private final Timer flushLag;
+    private final Counter flushFailures;
+    private final Counter flushConflicts;
+
+    public EngagementBuffer(
+            MongoTemplate mongoTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${engagement.buffer.enabled:true}") boolean enabled,
+            @Value("${engagement.buffer.stripes:64}") int stripeCount) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.stripes = new ReentrantLock[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.flushTimer = Timer.builder("engagement.buffer.flush")
+                .description("Time spent writing buffered likes and reactions")
+                .register(meterRegistry);
+        this.flushLag = Timer.builder("engagement.buffer.flush.lag")
+                .description("Age of the oldest buffered change when it was flushed")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("engagement.buffer.flush.failures")
+                .register(meterRegistry);
+        this.flushConflicts = Counter.builder("engagement.buffer.flush.conflicts")
+                .description("Flushes in which a guarded update found changed stored state")
+                .register(meterRegistry);
+        Gauge.builder("engagement.buffer.posts", posts, Map::size)
+                .description("Posts with buffered engagement state")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public LikeResult toggleLike(String postId, String userId) {
+        return withUser(postId, userId, (post, user) -> {
+            user.liked = !user.liked;
+            post.likeCount += user.liked ? 1 : -1;
+            post.markDirty();
+            return new LikeResult(postId, post.likeCount, user.liked);
+        });
+    }
+
+    public PostResponse react(String postId, String userId, Reaction requested) {
+        return withUser(postId, userId, (post, user) -> {
+            // Reacting with the same type again removes the reaction
+            Reaction next = user.reaction == requested ? null : requested;
+            if (user.reaction != null) {
+                post.reactionCounts.merge(user.reaction.name(), -1, Integer::sum);
+            }
+            if (next != null) {
+                post.reactionCounts.merge(next.name(), 1, Integer::sum);
+            }
+            user.reaction = next;
+            post.markDirty();
+
+            PostResponse response = new PostResponse();
+            response.setId(postId);
+            response.setUserId(post.authorId);
+            response.setUserReaction(next);
+            response.setReactionCounts(new HashMap<>(post.reactionCounts));
+            return response;
+        });
+    }
+
+    /**
+     * Overlays buffered counts and the viewer's buffered state on a response
+     * built from the database.
+     */
+    public void applyTo(PostResponse response, String viewerId) {
+        if (!enabled || !posts.containsKey(response.getId())) {
+            return;
+        }
+        ReentrantLock lock = lockFor(response.getId());
+        lock.lock();
+        try {
+            PostState post = posts.get(response.getId());
+            if (post == null) {
+                return;
+            }
+            response.setLikeCount(post.likeCount);
+            response.setReactionCounts(new HashMap<>(post.reactionCounts));
+            UserState user = viewerId != null ? post.users.get(viewerId) : null;
+            if (user != null) {
+                response.setIsLiked(user.liked);
+                response.setUserReaction(user.reaction);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void discard(String postId) {
+        posts.remove(postId);
+    }
+
+    @Scheduled(fixedDelayString = "${engagement.buffer.flush-interval-ms:250}")
+    public synchronized void flush() {
+        if (!enabled || posts.isEmpty()) {
+            return;
+        }
+
+        List<PendingWrite> writes = new ArrayList<>();
+        Map<String, Long> flushedSince = new HashMap<>();
+        for (String postId : posts.keySet()) {
+            ReentrantLock lock = lockFor(postId);
+            lock.lock();
+            try {
+                PostState post = posts.get(postId);
+                if (post == null) {
+                    continue;
+                }
+                post.users.entrySet().removeIf(entry -> {
+                    UserState user = entry.getValue();
+                    if (user.isDirty()) {
+                        writes.add(new PendingWrite(postId, entry.getKey(), user));
+                        return false;
+                    }
+                    // Toggled back to the stored state; nothing to write
+                    return true;
+                });
+                if (post.dirtySince != 0) {
+                    flushedSince.put(postId, post.dirtySince);
+                    post.dirtySince = 0;
+                }
+                if (post.users.isEmpty()) {
+                    posts.remove(postId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (writes.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        flushedSince.values().stream().min(Long::compare)
+                .ifPresent(oldest -> flushLag.record(now - oldest, TimeUnit.MILLISECONDS));
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Post.class);
+        int updates = 0;
+        for (PendingWrite write : writes) {
+            updates += write.addTo(bulk);
+        }
+        BulkWriteResult result;
+        try {
+            result = flushTimer.record(() -> bulk.execute());
+        } catch (RuntimeException e) {
+            // Every update is guarded on the stored state, so replaying the
+            // ones that did apply is a no-op on the next attempt.
+            flushFailures.increment();
+            logger.log(Level.WARNING, "Failed to flush {0} buffered engagement changes: {1}",
+                    new Object[]{writes.size(), e.getMessage()});
+            flushedSince.forEach(this::restoreDirty);
+            return;
+        }
+
+        for (PendingWrite write : writes) {
+            markPersisted(write);
+        }
+        if (result.getMatchedCount() < updates) {
+            // A guard did not match because the stored state changed elsewhere.
+            // The result does not say which one, so every write is re-read.
+            flushConflicts.increment();
+            writes.forEach(this::resync);
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        for (int attempt = 0; attempt < SHUTDOWN_FLUSH_ATTEMPTS && !posts.isEmpty(); attempt++) {
+            flush();
+        }
+        if (!posts.isEmpty()) {
+            logger.log(Level.SEVERE, "Shutting down with buffered engagement for {0} posts", posts.size());
+        }
+    }
+
+    private <T> T withUser(String postId, String userId, BiFunction<PostState, UserState, T> action) {
+        ReentrantLock lock = lockFor(postId);
+        lock.lock();
+        try {
+            PostState post = posts.get(postId);
+            UserState user = post != null ? post.users.get(userId) : null;
+            if (user != null) {
+                return action.apply(post, user);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // First touch by this user: read the stored state outside the lock
+        Post stored = loadStoredState(postId, userId);
+        lock.lock();
+        try {
+            PostState post = posts.computeIfAbsent(postId, id -> new PostState(stored));
+            UserState user = post.users.computeIfAbsent(userId, id -> new UserState(
+                    stored.isLikedByUser(userId), stored.getUserReaction(userId)));
+            return action.apply(post, user);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Post loadStoredState(String postId, String userId) {
+        Document fields = new Document("userId", 1)
+                .append("likeCount", 1)
+                .append("reactionCounts", 1)
+                .append("likedByUsers", new Document("$elemMatch", new Document("$eq", userId)))
+                .append(PostReactionService.userReactionPath(userId), 1);
+        Query query = new BasicQuery(new Document(), fields).addCriteria(Criteria.where("_id").is(postId));
+        Post post = mongoTemplate.findOne(query, Post.class);
+        if (post != null && !post.hasLikeCount()) {
+            // Only the viewer's like was read, so the counter must be stored before it is used
+            LikeCounts.backfill(mongoTemplate, postId);
+            post = mongoTemplate.findOne(query, Post.class);
+        }
+        if (post == null) {
+            throw new IllegalArgumentException("Post not found");
+        }
+        return post;
+    }
+
+    private void restoreDirty(String postId, long since) {
+        ReentrantLock lock = lockFor(postId);
+        lock.lock();
+        try {
+            PostState post = posts.get(postId);
+            if (post != null && (post.dirtySince == 0 || post.dirtySince > since)) {
+                post.dirtySince = since;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void markPersisted(PendingWrite write) {
+        ReentrantLock lock = lockFor(write.postId);
+        lock.lock();
+        try {
+            PostState post = posts.get(write.postId);
+            UserState user = post != null ? post.users.get(write.userId) : null;
+            if (user == null) {
+                return;
+            }
+            user.storedLiked = write.liked;
+            user.storedReaction = write.reaction;
+            if (!user.isDirty()) {
+                post.users.remove(write.userId);
+                if (post.users.isEmpty()) {
+                    posts.remove(write.postId);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces this instance's view of a user's stored state, and the post's
+     * counters, with what the database holds. A change that did not apply
+     * stays dirty and is written again against the actual state.
+     */
+    private void resync(PendingWrite write) {
+        Post stored;
+        try {
+            stored = loadStoredState(write.postId, write.userId);
+        } catch (IllegalArgumentException e) {
+            discard(write.postId);
+            return;
+        }
+        ReentrantLock lock = lockFor(write.postId);
+        lock.lock();
+        try {
+            PostState post = posts.computeIfAbsent(write.postId, id -> new PostState(stored));
+            UserState user = post.users.get(write.userId);
+            if (user == null) {
+                // Marked persisted and dropped; keep the change it was meant to make
+                user = new UserState(write.liked, write.reaction);
+                post.users.put(write.userId, user);
+            }
+            user.storedLiked = stored.isLikedByUser(write.userId);
+            user.storedReaction = stored.getUserReaction(write.userId);
+
+            post.likeCount = stored.getLikeCount();
+            post.reactionCounts.clear();
+            if (stored.getReactionCounts() != null) {
+                post.reactionCounts.putAll(stored.getReactionCounts());
+            }
+            for (UserState pending : post.users.values()) {
+                post.likeCount += (pending.liked ? 1 : 0) - (pending.storedLiked ? 1 : 0);
+                if (pending.storedReaction != null) {
+                    post.reactionCounts.merge(pending.storedReaction.name(), -1, Integer::sum);
+                }
+                if (pending.reaction != null) {
+                    post.reactionCounts.merge(pending.reaction.name(), 1, Integer::sum);
+                }
+            }
+
+            if (user.isDirty()) {
+                post.markDirty();
+            } else {
+                post.users.remove(write.userId);
+                if (post.users.isEmpty()) {
+                    posts.remove(write.postId);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(String postId) {
+        return stripes[Math.floorMod(postId.hashCode(), stripes.length)];
+    }
+
+    private static class PostState {
+        private final String authorId;
+        private final Map<String, Integer> reactionCounts;
+        private final Map<String, UserState> users = new HashMap<>();
+        private int likeCount;
+        private long dirtySince;
+
+        PostState(Post stored) {
+            this.authorId = stored.getUserId();
+            this.likeCount = stored.getLikeCount();
+            this.reactionCounts = stored.getReactionCounts() != null
+                    ? new HashMap<>(stored.getReactionCounts())
+                    : new HashMap<>();
+        }
+
+        void markDirty() {
+            if (dirtySince == 0) {
+                dirtySince = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private static class UserState {
+        private boolean storedLiked;
+        private Reaction storedReaction;
+        private boolean liked;
+        private Reaction reaction;
+
+        UserState(boolean liked, Reaction reaction) {
+            this.storedLiked = liked;
+            this.storedReaction = reaction;
+            this.liked = liked;
+            this.reaction = reaction;
+        }
+
+        boolean isDirty() {
+            return liked != storedLiked || reaction != storedReaction;
+        }
+    }
+
+    /**
+     * The net change of one user on one post, written as the same guarded
+     * updates the direct paths use so counters cannot drift.
+     */
+    private static class PendingWrite {
+        private final String postId;
+        private final String userId;
+        private final boolean storedLiked;
+        private final boolean liked;
+        private final Reaction storedReaction;
+        private final Reaction reaction;
+
+        PendingWrite(String postId, String userId, UserState user) {
+            this.postId = postId;
+            this.userId = userId;
+            this.storedLiked = user.storedLiked;
+            this.liked = user.liked;
+            this.storedReaction = user.storedReaction;
+            this.reaction = user.reaction;
+        }
+
+        int addTo(BulkOperations bulk) {
+            int updates = 0;
+            if (liked != storedLiked) {
+                Criteria guard = Criteria.where("_id").is(postId);
+                Update update = new Update();
+                if (liked) {
+                    guard = guard.and("likedByUsers").ne(userId);
+                    update.addToSet("likedByUsers", userId).inc("likeCount", 1);
+                } else {
+                    guard = guard.and("likedByUsers").is(userId);
+                    update.pull("likedByUsers", userId).inc("likeCount", -1);
+                }
+                bulk.updateOne(new Query(guard), update);
+                updates++;
+            }
+
+            if (reaction != storedReaction) {
+                String reactionPath = PostReactionService.userReactionPath(userId);
+                Criteria guard = Criteria.where("_id").is(postId);
+                guard = storedReaction != null
+                        ? guard.and(reactionPath).is(storedReaction.name())
+                        : guard.and(reactionPath).exists(false);
+                Update update = new Update();
+                if (reaction != null) {
+                    update.set(reactionPath, reaction.name());
+                    update.inc("reactionCounts." + reaction.name(), 1);
+                } else {
+                    update.unset(reactionPath);
+                }
+                if (storedReaction != null) {
+                    update.inc("reactionCounts." + storedReaction.name(), -1);
+                }
+                bulk.updateOne(new Query(guard), update);
+                updates++;
+            }
+            return updates;
+        }
+    }
+}
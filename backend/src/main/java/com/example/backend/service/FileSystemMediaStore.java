@@ -0,0 +1,354 @@
+package com.example.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.model.ByteRange;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.GridFSFindIterable;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.model.ReplaceOptions;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Keeps media content as plain files under a local directory, sharded by
+ * the last bytes of the id (ab/cd/<id>) so no directory grows too large.
+ * Files are written to a temporary name and renamed into place, so a file
+ * is either complete or absent. Reads use FileChannel.transferTo, and the
+ * path is exposed so responses can be sent with sendfile. Chunks of
+ * piecewise uploads are staged in partial/<id>/ until published.
+ *
+ * The file entry is written after the rename and removed after the file, so
+ * a crash in between can only leave a file without an entry. A periodic
+ * sweep deletes such files, and leftover temporary files, once they are old.
+ */
+@Service
+@ConditionalOnProperty(name = "media.store.engine", havingValue = "filesystem")
+public class FileSystemMediaStore implements MediaStore {
+    private static final Logger logger = Logger.getLogger(FileSystemMediaStore.class.getName());
+    private static final String FILES_COLLECTION = "media.files";
+    // Recorded in file entries for compatibility with GridFS readers
+    private static final int CHUNK_SIZE = 261120;
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final MediaMetadataCache metadataCache;
+    private final GridFSBucket catalog;
+    private final Path root;
+    private final Path tempDirectory;
+    private final Path partialDirectory;
+    private final long orphanMinAgeMillis;
+
+    public FileSystemMediaStore(
+            MongoTemplate mongoTemplate,
+            MediaMetadataCache metadataCache,
+            @Value("${media.store.directory:uploads/media}") String directory,
+            @Value("${media.store.orphan-min-age-hours:24}") long orphanMinAgeHours) {
+        this.mongoTemplate = mongoTemplate;
+        this.metadataCache = metadataCache;
+        // Only used to query media.files; this engine never writes GridFS chunks
+        this.catalog = GridFSBuckets.create(mongoTemplate.getDb(), "media");
+        this.root = Paths.get(directory).toAbsolutePath().normalize();
+        this.tempDirectory = root.resolve("tmp");
+        this.partialDirectory = root.resolve("partial");
+        this.orphanMinAgeMillis = orphanMinAgeHours * 3600000;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            Files.createDirectories(tempDirectory);
+            Files.createDirectories(partialDirectory);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create media directory " + root, e);
+        }
+    }
+
+    @Override
+    public ObjectId store(String filename, InputStream content, Document metadata) throws IOException {
+        ObjectId fileId = new ObjectId();
+        Path temp = Files.createTempFile(tempDirectory, fileId.toHexString(), ".tmp");
+        try {
+            long length = Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+            moveIntoPlace(temp, pathFor(fileId));
+            writeEntry(fileId, filename, length, metadata);
+            return fileId;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            Files.deleteIfExists(pathFor(fileId));
+            throw e;
+        }
+    }
+
+    @Override
+    public GridFSFindIterable find(Bson filter) {
+        return catalog.find(filter);
+    }
+
+    @Override
+    public void copyRange(GridFSFile file, ByteRange range, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(pathFor(file.getObjectId()), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = range.getStart();
+            long remaining = range.getLength();
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    throw new IOException("Unexpected end of media " + file.getObjectId());
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    @Override
+    public InputStream openStream(GridFSFile file) throws IOException {
+        return Files.newInputStream(pathFor(file.getObjectId()));
+    }
+
+    @Override
+    public Path localPath(GridFSFile file) {
+        return pathFor(file.getObjectId());
+    }
+
+    @Override
+    public void delete(ObjectId fileId) {
+        metadataCache.remove(fileId);
+        try {
+            Files.deleteIfExists(pathFor(fileId));
+            deleteChunks(fileId);
+        } catch (IOException e) {
+            // The entry stays, so the reconciler finds the file and deletes it again
+            logger.log(Level.WARNING, "Failed to delete media " + fileId, e);
+            return;
+        }
+        mongoTemplate.getCollection(FILES_COLLECTION).deleteOne(new Document("_id", fileId));
+        metadataCache.remove(fileId);
+    }
+
+    @Override
+    public void writeChunk(ObjectId fileId, int n, byte[] data, int length) throws IOException {
+        Path chunks = Files.createDirectories(partialDirectory.resolve(fileId.toHexString()));
+        Path temp = Files.createTempFile(chunks, n + ".", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                out.write(data, 0, length);
+            }
+            // A retried chunk replaces the earlier copy in one step
+            Files.move(temp, chunks.resolve(Integer.toString(n)),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Integer> listChunks(ObjectId fileId) {
+        List<Integer> chunks = new ArrayList<>();
+        Path directory = partialDirectory.resolve(fileId.toHexString());
+        if (!Files.isDirectory(directory)) {
+            return chunks;
+        }
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.map(path -> path.getFileName().toString())
+                    .filter(name -> name.chars().allMatch(Character::isDigit))
+                    .map(Integer::valueOf)
+                    .forEach(chunks::add);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to list chunks of media " + fileId, e);
+        }
+        chunks.sort(null);
+        return chunks;
+    }
+
+    @Override
+    public long readChunks(ObjectId fileId, int totalChunks, OutputStream out) throws IOException {
+        Path directory = partialDirectory.resolve(fileId.toHexString());
+        long length = 0;
+        for (int n = 0; n < totalChunks; n++) {
+            try {
+                length += Files.copy(directory.resolve(Integer.toString(n)), out);
+            } catch (NoSuchFileException e) {
+                throw new IOException("Missing chunk " + n + " of media " + fileId);
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public void publish(ObjectId fileId, String filename, long length, int chunkSize, Document metadata)
+            throws IOException {
+        Path directory = partialDirectory.resolve(fileId.toHexString());
+        if (Files.isDirectory(directory)) {
+            Path temp = Files.createTempFile(tempDirectory, fileId.toHexString(), ".tmp");
+            try {
+                try (FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    List<Integer> chunks = listChunks(fileId);
+                    for (int n : chunks) {
+                        try (FileChannel chunk = FileChannel.open(directory.resolve(Integer.toString(n)),
+                                StandardOpenOption.READ)) {
+                            // File-to-file transfers stay in the kernel
+                            long position = 0;
+                            long size = chunk.size();
+                            while (position < size) {
+                                long sent = chunk.transferTo(position, size - position, target);
+                                if (sent <= 0) {
+                                    throw new IOException("Unexpected end of chunk " + n + " of media " + fileId);
+                                }
+                                position += sent;
+                            }
+                        }
+                    }
+                }
+                moveIntoPlace(temp, pathFor(fileId));
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            deleteChunks(fileId);
+        } else if (!Files.exists(pathFor(fileId))) {
+            throw new IOException("No content for media " + fileId);
+        }
+        writeEntry(fileId, filename, length, metadata);
+    }
+
+    /**
+     * Deletes files that have no entry in media.files and no upload session,
+     * and temporary files, once they are older than the configured age.
+     * Younger files may belong to a write that has not added its entry yet.
+     */
+    @Scheduled(fixedDelayString = "${media.store.sweep-interval-ms:3600000}",
+            initialDelayString = "${media.store.sweep-interval-ms:3600000}")
+    public void sweepOrphans() {
+        long cutoff = System.currentTimeMillis() - orphanMinAgeMillis;
+        int deleted = 0;
+        try {
+            try (Stream<Path> temps = Files.list(tempDirectory)) {
+                for (Path temp : temps.toList()) {
+                    if (Files.getLastModifiedTime(temp).toMillis() < cutoff && Files.deleteIfExists(temp)) {
+                        deleted++;
+                    }
+                }
+            }
+            List<ObjectId> candidates = new ArrayList<>();
+            try (Stream<Path> files = Files.find(root, 3, (path, attributes) -> attributes.isRegularFile()
+                    && attributes.lastModifiedTime().toMillis() < cutoff && isContentPath(path))) {
+                for (Path path : (Iterable<Path>) files::iterator) {
+                    candidates.add(new ObjectId(path.getFileName().toString()));
+                    if (candidates.size() == SWEEP_BATCH_SIZE) {
+                        deleted += deleteOrphans(candidates);
+                        candidates.clear();
+                    }
+                }
+            }
+            if (!candidates.isEmpty()) {
+                deleted += deleteOrphans(candidates);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to sweep media directory " + root, e);
+        }
+        if (deleted > 0) {
+            logger.log(Level.INFO, "Deleted {0} media files without an entry", deleted);
+        }
+    }
+
+    private int deleteOrphans(List<ObjectId> fileIds) throws IOException {
+        Set<ObjectId> known = new HashSet<>();
+        Query entries = new Query(Criteria.where("_id").in(fileIds));
+        entries.fields().include("_id");
+        mongoTemplate.find(entries, Document.class, FILES_COLLECTION)
+                .forEach(entry -> known.add(entry.getObjectId("_id")));
+        // A publish retried after a crash expects the file it already moved into place
+        Query sessions = new Query(Criteria.where("fileId")
+                .in(fileIds.stream().map(ObjectId::toHexString).toList()));
+        sessions.fields().include("fileId");
+        mongoTemplate.find(sessions, Document.class, "upload_sessions")
+                .forEach(session -> known.add(new ObjectId(session.getString("fileId"))));
+
+        int deleted = 0;
+        for (ObjectId fileId : fileIds) {
+            if (!known.contains(fileId) && Files.deleteIfExists(pathFor(fileId))) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private boolean isContentPath(Path path) {
+        String name = path.getFileName().toString();
+        return ObjectId.isValid(name) && path.equals(pathFor(new ObjectId(name)));
+    }
+
+    private void writeEntry(ObjectId fileId, String filename, long length, Document metadata) {
+        Document fileEntry = new Document("_id", fileId)
+                .append("length", length)
+                .append("chunkSize", CHUNK_SIZE)
+                .append("uploadDate", new Date())
+                .append("filename", filename)
+                .append("metadata", metadata);
+        mongoTemplate.getCollection(FILES_COLLECTION)
+                .replaceOne(new Document("_id", fileId), fileEntry, new ReplaceOptions().upsert(true));
+        metadataCache.remove(fileId);
+    }
+
+    private void moveIntoPlace(Path temp, Path target) throws IOException {
+        // Flush before the rename so a crash cannot leave a named but truncated file
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.createDirectories(target.getParent());
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void deleteChunks(ObjectId fileId) throws IOException {
+        Path directory = partialDirectory.resolve(fileId.toHexString());
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(directory)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private Path pathFor(ObjectId fileId) {
+        // The trailing counter bytes vary fastest, so they spread files evenly
+        String hex = fileId.toHexString();
+        return root.resolve(hex.substring(22, 24)).resolve(hex.substring(20, 22)).resolve(hex);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.model.ByteRange;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.GridFSFindIterable;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import com.mongodb.client.model.ReplaceOptions;
+
+/**
+ * Keeps media in the "media" GridFS bucket. Ranges are read by chunk index
+ * through {@link MediaChunkReader}, and piecewise uploads write their chunks
+ * as media.chunks documents directly.
+ */
+@Service
+@ConditionalOnProperty(name = "media.store.engine", havingValue = "gridfs", matchIfMissing = true)
+public class GridFsMediaStore implements MediaStore {
+    private static final String CHUNKS_COLLECTION = "media.chunks";
+    private static final String FILES_COLLECTION = "media.files";
+
+    private final MongoTemplate mongoTemplate;
+    private final MediaChunkReader chunkReader;
+    private final MediaMetadataCache metadataCache;
+    private final GridFSBucket gridFSBucket;
+
+    public GridFsMediaStore(MongoTemplate mongoTemplate, MediaChunkReader chunkReader,
+            MediaMetadataCache metadataCache) {
+        this.mongoTemplate = mongoTemplate;
+        this.chunkReader = chunkReader;
+        this.metadataCache = metadataCache;
+        this.gridFSBucket = GridFSBuckets.create(mongoTemplate.getDb(), "media");
+    }
+
+    @Override
+    public ObjectId store(String filename, InputStream content, Document metadata) {
+        return gridFSBucket.uploadFromStream(filename, content, new GridFSUploadOptions().metadata(metadata));
+    }
+
+    @Override
+    public GridFSFindIterable find(Bson filter) {
+        return gridFSBucket.find(filter);
+    }
+
+    @Override
+    public void copyRange(GridFSFile file, ByteRange range, OutputStream out) throws IOException {
+        chunkReader.copyRange(file, range, out);
+    }
+
+    @Override
+    public InputStream openStream(GridFSFile file) {
+        return gridFSBucket.openDownloadStream(file.getObjectId());
+    }
+
+    @Override
+    public void delete(ObjectId fileId) {
+        // Unlike GridFSBucket.delete, also clears chunks that never got a file entry
+        mongoTemplate.getCollection(FILES_COLLECTION).deleteOne(new Document("_id", fileId));
+        mongoTemplate.getCollection(CHUNKS_COLLECTION).deleteMany(new Document("files_id", fileId));
+        metadataCache.remove(fileId);
+    }
+
+    @Override
+    public void writeChunk(ObjectId fileId, int n, byte[] data, int length) {
+        // The document is encoded before replaceOne returns, so the caller may reuse data
+        byte[] bytes = length == data.length ? data : Arrays.copyOf(data, length);
+        mongoTemplate.getCollection(CHUNKS_COLLECTION).replaceOne(
+                new Document("files_id", fileId).append("n", n),
+                new Document("files_id", fileId).append("n", n).append("data", new Binary(bytes)),
+                new ReplaceOptions().upsert(true));
+    }
+
+    @Override
+    public List<Integer> listChunks(ObjectId fileId) {
+        List<Integer> chunks = new ArrayList<>();
+        mongoTemplate.getCollection(CHUNKS_COLLECTION)
+                .distinct("n", new Document("files_id", fileId), Integer.class)
+                .into(chunks);
+        chunks.sort(null);
+        return chunks;
+    }
+
+    @Override
+    public long readChunks(ObjectId fileId, int totalChunks, OutputStream out) throws IOException {
+        long length = 0;
+        int expected = 0;
+        try (MongoCursor<Document> chunks = mongoTemplate.getCollection(CHUNKS_COLLECTION)
+                .find(new Document("files_id", fileId))
+                .sort(new Document("n", 1))
+                .batchSize(4)
+                .iterator()) {
+            while (chunks.hasNext() && expected < totalChunks) {
+                Document chunk = chunks.next();
+                if (chunk.getInteger("n") != expected) {
+                    break;
+                }
+                byte[] data = chunk.get("data", Binary.class).getData();
+                out.write(data);
+                length += data.length;
+                expected++;
+            }
+        }
+        if (expected != totalChunks) {
+            throw new IOException("Missing chunk " + expected + " of media " + fileId);
+        }
+        return length;
+    }
+
+    @Override
+    public void publish(ObjectId fileId, String filename, long length, int chunkSize, Document metadata) {
+        Document fileEntry = new Document("_id", fileId)
+                .append("length", length)
+                .append("chunkSize", chunkSize)
+                .append("uploadDate", new Date())
+                .append("filename", filename)
+                .append("metadata", metadata);
+        mongoTemplate.getCollection(FILES_COLLECTION)
+                .replaceOne(new Document("_id", fileId), fileEntry, new ReplaceOptions().upsert(true));
+        metadataCache.remove(fileId);
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.backend.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Generates downscaled copies of uploaded images at fixed widths. Variants
+ * are stored as separate media files whose metadata points back to the
+ * original, and are built on a small worker pool after the upload returns.
+ * Until a variant exists, requests for it are served the original.
+ */
+@Service
+public class ImageVariantService {
+    private static final Logger logger = Logger.getLogger(ImageVariantService.class.getName());
+    private static final int MAX_QUEUED_IMAGES = 64;
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final MediaStore mediaStore;
+    private final boolean enabled;
+    private final List<Integer> widths;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+
+    public ImageVariantService(
+            MediaStore mediaStore,
+            @Value("${media.variants.enabled:true}") boolean enabled,
+            @Value("${media.variants.widths:320,640,1280}") List<Integer> widths,
+            @Value("${media.variants.max-pixels:40000000}") long maxPixels,
+            @Value("${media.variants.threads:2}") int threads) {
+        this.mediaStore = mediaStore;
+        this.enabled = enabled;
+        this.widths = widths.stream().sorted().toList();
+        this.maxPixels = maxPixels;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_IMAGES));
+    }
+
+    /**
+     * Queues variant generation for a stored image. Uploads never wait on
+     * this; when the queue is full the image is simply served at full size.
+     */
+    public void generateAsync(ObjectId originalId) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            executor.execute(() -> generate(originalId));
+        } catch (RejectedExecutionException e) {
+            logger.log(Level.WARNING, "Image variant queue full, skipping " + originalId);
+        }
+    }
+
+    /**
+     * Returns the narrowest stored variant at least the requested width, or
+     * null if the original should be served.
+     */
+    public GridFSFile findVariant(ObjectId originalId, int width) {
+        // Other derived files, such as rewritten videos, also carry variantOf
+        return mediaStore.find(new Document("metadata.variantOf", originalId)
+                        .append("metadata.width", new Document("$gte", width))
+                        .append("metadata.type", "variant"))
+                .sort(new Document("metadata.width", 1))
+                .first();
+    }
+
+    /**
+     * Returns whether a variant at least the requested width exists or may
+     * still be generated. Originals stored without their dimensions are
+     * assumed to get one.
+     */
+    public boolean mayHaveVariant(GridFSFile original, int width) {
+        if (!enabled || widths.isEmpty() || width <= 0 || width > widths.get(widths.size() - 1)) {
+            return false;
+        }
+        Document metadata = original.getMetadata();
+        if (metadata == null) {
+            return true;
+        }
+        String type = metadata.getString("type");
+        if ("video".equals(type) || "variant".equals(type)) {
+            return false;
+        }
+        Integer imageWidth = metadata.getInteger("width");
+        Integer imageHeight = metadata.getInteger("height");
+        if (imageWidth == null || imageHeight == null) {
+            return true;
+        }
+        if ((long) imageWidth * imageHeight > maxPixels) {
+            return false;
+        }
+        // Variants are only generated narrower than the original
+        return widths.stream().anyMatch(w -> w >= width && w < imageWidth);
+    }
+
+    /**
+     * Adds an uploaded image's dimensions, read from its header, to the
+     * metadata it is stored with. Files that are not readable images are
+     * left as they are.
+     */
+    public Document withDimensions(MultipartFile file, Document metadata) {
+        try (InputStream in = file.getInputStream();
+                ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return metadata;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                metadata.append("width", reader.getWidth(0)).append("height", reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Could not read dimensions of " + file.getOriginalFilename(), e);
+        }
+        return metadata;
+    }
+
+    public void deleteVariants(ObjectId originalId) {
+        for (GridFSFile variant : mediaStore.find(new Document("metadata.variantOf", originalId))) {
+            try {
+                mediaStore.delete(variant.getObjectId());
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed to delete image variant " + variant.getObjectId(), e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void generate(ObjectId originalId) {
+        try {
+            GridFSFile original = mediaStore.find(originalId);
+            if (original == null) {
+                return;
+            }
+            BufferedImage source = decode(original);
+            if (source == null) {
+                return;
+            }
+            boolean png = source.getColorModel().hasAlpha();
+            for (int width : widths) {
+                if (width >= source.getWidth()) {
+                    break;
+                }
+                if (variantExists(originalId, width)) {
+                    continue;
+                }
+                byte[] encoded = encode(resize(source, width), png);
+                Document metadata = new Document("type", "variant")
+                        .append("variantOf", originalId)
+                        .append("width", width)
+                        .append("contentType", png ? "image/png" : "image/jpeg");
+                mediaStore.store(variantName(original.getFilename(), width, png),
+                        new ByteArrayInputStream(encoded), metadata);
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to generate image variants for " + originalId, e);
+        }
+    }
+
+    private BufferedImage decode(GridFSFile original) throws IOException {
+        try (InputStream in = mediaStore.openStream(original);
+                ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long width = reader.getWidth(0);
+                long height = reader.getHeight(0);
+                if (width * height > maxPixels) {
+                    logger.log(Level.INFO, "Image " + original.getObjectId() + " too large for variants");
+                    return null;
+                }
+                // Skip pixels while decoding when the image is far wider than any variant
+                ImageReadParam param = reader.getDefaultReadParam();
+                int largest = widths.isEmpty() ? (int) width : widths.get(widths.size() - 1);
+                int subsampling = (int) Math.max(1, width / (largest * 2L));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage resize(BufferedImage source, int width) {
+        // Halve repeatedly before the final step so bilinear filtering keeps detail
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= width) {
+            current = scale(current, current.getWidth() / 2);
+        }
+        return current.getWidth() == width ? current : scale(current, width);
+    }
+
+    private BufferedImage scale(BufferedImage source, int width) {
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage scaled = new BufferedImage(width, height, type);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private byte[] encode(BufferedImage image, boolean png) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (png) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private boolean variantExists(ObjectId originalId, int width) {
+        return mediaStore.find(new Document("metadata.variantOf", originalId).append("metadata.width", width))
+                .first() != null;
+    }
+
+    private static String variantName(String originalName, int width, boolean png) {
+        String base = originalName != null ? originalName : "image";
+        int dot = base.lastIndexOf('.');
+        if (dot > 0) {
+            base = base.substring(0, dot);
+        }
+        return base + "_w" + width + (png ? ".png" : ".jpg");
+    }
+}
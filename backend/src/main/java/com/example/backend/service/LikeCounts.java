@@ -0,0 +1,39 @@
+package com.example.backend.service;
+
+import java.util.Collections;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * Posts written before likeCount was maintained have no counter. It is
+ * derived from likedByUsers before the first $inc touches such a post, since
+ * an $inc on a missing field would start the count from zero.
+ */
+public final class LikeCounts {
+    private LikeCounts() {
+    }
+
+    public static Query missing() {
+        return new Query(Criteria.where("likeCount").exists(false));
+    }
+
+    public static AggregationUpdate fromLikedByUsers() {
+        return AggregationUpdate.update()
+                .set("likeCount").toValue(ArrayOperators.Size.lengthOfArray(
+                        ConditionalOperators.ifNull("likedByUsers").then(Collections.emptyList())));
+    }
+
+    /**
+     * Derives the counter of one post if it has none. Returns true if the
+     * post was changed.
+     */
+    static boolean backfill(MongoTemplate mongoTemplate, String postId) {
+        return mongoTemplate.updateFirst(missing().addCriteria(Criteria.where("_id").is(postId)),
+                fromLikedByUsers(), "posts").getModifiedCount() > 0;
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Stores uploads once per distinct content. Each stored file is registered
+ * in media_blobs under the SHA-256 of its bytes with a reference count, so an
+ * identical upload returns the existing file id and deleting a post or
+ * tutorial only drops its reference. The file and its image variants are
+ * removed when the last reference is released.
+ */
+@Service
+public class MediaBlobService {
+    private static final Logger logger = Logger.getLogger(MediaBlobService.class.getName());
+    private static final String BLOBS_COLLECTION = "media_blobs";
+    private static final int MAX_STORE_ATTEMPTS = 3;
+    // Enough to recognise a retried release; older ids are dropped
+    private static final int MAX_RECORDED_RELEASES = 64;
+
+    private final MongoTemplate mongoTemplate;
+    private final MediaStore mediaStore;
+    private final ImageVariantService imageVariantService;
+    private final Counter deduplicated;
+
+    public MediaBlobService(MongoTemplate mongoTemplate, MediaStore mediaStore,
+            ImageVariantService imageVariantService, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.mediaStore = mediaStore;
+        this.imageVariantService = imageVariantService;
+        this.deduplicated = Counter.builder("media.blobs.deduplicated")
+                .description("Uploads answered with an existing file")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the id of a stored file with the upload's content, writing it
+     * to the media store only if no identical file is stored yet.
+     */
+    public ObjectId store(MultipartFile file, String filename, Document metadata) throws IOException {
+        // Multipart uploads are already buffered locally, so hashing first avoids writing duplicates
+        String digest = sha256(file);
+
+        for (int attempt = 0; attempt < MAX_STORE_ATTEMPTS; attempt++) {
+            ObjectId existing = addReference(digest);
+            if (existing != null) {
+                return existing;
+            }
+            ObjectId fileId = upload(file, filename, metadata.append("sha256", digest));
+            if (register(digest, fileId, file.getSize())) {
+                return fileId;
+            }
+            mediaStore.delete(fileId);
+        }
+
+        logger.log(Level.WARNING, "Storing media " + digest + " without deduplication after repeated conflicts");
+        return upload(file, filename, metadata);
+    }
+
+    /**
+     * Registers a file that was already written to the store. If identical
+     * content is stored, the new file is deleted and the existing id is
+     * returned instead.
+     */
+    public ObjectId adopt(ObjectId fileId, String digest, long size) {
+        for (int attempt = 0; attempt < MAX_STORE_ATTEMPTS; attempt++) {
+            ObjectId existing = addReference(digest);
+            if (existing != null) {
+                mediaStore.delete(fileId);
+                return existing;
+            }
+            if (register(digest, fileId, size)) {
+                return fileId;
+            }
+        }
+
+        logger.log(Level.WARNING, "Keeping media " + fileId + " without deduplication after repeated conflicts");
+        return fileId;
+    }
+
+    /**
+     * Drops one reference to a stored file and deletes it once unreferenced.
+     * Files stored before deduplication have no blob entry and are deleted
+     * directly.
+     */
+    public void release(ObjectId fileId) {
+        release(fileId, new ObjectId());
+    }
+
+    /**
+     * Drops the reference identified by releaseId. Repeating a release with
+     * the same id, as a retried job does, does not drop a second reference
+     * but still finishes deleting the file if the first attempt stopped
+     * short of it.
+     */
+    public void release(ObjectId fileId, ObjectId releaseId) {
+        Document blob = mongoTemplate.findAndModify(
+                new Query(Criteria.where("fileId").is(fileId).and("refCount").gt(0).and("releases").ne(releaseId)),
+                new Update().inc("refCount", -1).push("releases").slice(-MAX_RECORDED_RELEASES).each(releaseId),
+                FindAndModifyOptions.options().returnNew(true),
+                Document.class, BLOBS_COLLECTION);
+        if (blob == null) {
+            blob = mongoTemplate.findOne(new Query(Criteria.where("fileId").is(fileId)), Document.class,
+                    BLOBS_COLLECTION);
+            if (blob == null) {
+                deleteFile(fileId);
+                return;
+            }
+            List<?> releases = blob.getList("releases", Object.class);
+            if (releases == null || !releases.contains(releaseId)) {
+                return;
+            }
+        }
+        if (blob.getInteger("refCount") > 0) {
+            return;
+        }
+        // Only the release that removes the entry deletes the file
+        long removed = mongoTemplate.remove(
+                new Query(Criteria.where("_id").is(blob.getString("_id")).and("refCount").lte(0)),
+                BLOBS_COLLECTION).getDeletedCount();
+        if (removed > 0) {
+            deleteFile(fileId);
+        }
+    }
+
+    /**
+     * Deletes a file that no document refers to. A file with a blob entry is
+     * only deleted if the entry is removed in the same step, which requires
+     * its reference count to have reached zero and no reference to have been
+     * added since referencedBefore. Content that is still shared, or was
+     * deduplicated onto the file after the caller's scan, is kept.
+     */
+    public boolean reclaim(ObjectId fileId, Date referencedBefore) {
+        Document blob = mongoTemplate.findOne(new Query(Criteria.where("fileId").is(fileId)), Document.class,
+                BLOBS_COLLECTION);
+        if (blob != null) {
+            long removed = mongoTemplate.remove(new Query(Criteria.where("_id").is(blob.getString("_id"))
+                            .and("fileId").is(fileId)
+                            .and("refCount").lte(0)
+                            .orOperator(Criteria.where("lastReferencedAt").lt(referencedBefore),
+                                    Criteria.where("lastReferencedAt").exists(false))),
+                    BLOBS_COLLECTION).getDeletedCount();
+            if (removed == 0) {
+                if (blob.getInteger("refCount", 0) > 0) {
+                    logger.log(Level.INFO, "Keeping unreferenced media " + fileId + " with "
+                            + blob.getInteger("refCount") + " recorded references");
+                }
+                return false;
+            }
+        }
+        deleteFile(fileId);
+        return true;
+    }
+
+    private ObjectId addReference(String digest) {
+        Document existing = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(digest).and("refCount").gt(0)),
+                new Update().inc("refCount", 1).currentDate("lastReferencedAt"),
+                FindAndModifyOptions.options().returnNew(true),
+                Document.class, BLOBS_COLLECTION);
+        if (existing == null) {
+            return null;
+        }
+        deduplicated.increment();
+        return existing.getObjectId("fileId");
+    }
+
+    private boolean register(String digest, ObjectId fileId, long size) {
+        try {
+            mongoTemplate.insert(new Document("_id", digest)
+                    .append("fileId", fileId)
+                    .append("refCount", 1)
+                    .append("size", size)
+                    .append("createdAt", new Date())
+                    .append("lastReferencedAt", new Date()), BLOBS_COLLECTION);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Another upload of the same content won the race, or its last reference is being released
+            return false;
+        }
+    }
+
+    private ObjectId upload(MultipartFile file, String filename, Document metadata) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return mediaStore.store(filename, in, metadata);
+        }
+    }
+
+    private void deleteFile(ObjectId fileId) {
+        mediaStore.delete(fileId);
+        imageVariantService.deleteVariants(fileId);
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String sha256(MultipartFile file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[16384];
+        try (InputStream in = file.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.backend.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.model.ByteRange;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+/**
+ * Reads byte ranges of GridFS files by chunk index. The chunks covering a
+ * range are fetched directly by (files_id, n), so seeking to any offset costs
+ * the same as reading from the start. Chunks read ahead by the
+ * {@link MediaPrefetcher} are served from memory.
+ */
+@Service
+public class MediaChunkReader {
+    private static final String CHUNKS_COLLECTION = "media.chunks";
+    // Chunks are up to 256KB; keep each cursor batch around a megabyte
+    private static final int CHUNK_BATCH_SIZE = 4;
+
+    private final MongoTemplate mongoTemplate;
+    private final MediaPrefetcher prefetcher;
+
+    public MediaChunkReader(MongoTemplate mongoTemplate, MediaPrefetcher prefetcher) {
+        this.mongoTemplate = mongoTemplate;
+        this.prefetcher = prefetcher;
+    }
+
+    public void copyRange(GridFSFile file, ByteRange range, OutputStream out) throws IOException {
+        if (range.getLength() <= 0) {
+            return;
+        }
+        ObjectId fileId = file.getObjectId();
+        int chunkSize = file.getChunkSize();
+        int firstChunk = (int) (range.getStart() / chunkSize);
+        int lastChunk = (int) (range.getEnd() / chunkSize);
+        prefetcher.recordAccess(file, firstChunk, lastChunk);
+
+        // Leading chunks may already be in memory; the rest come from one query
+        int expected = firstChunk;
+        byte[] prefetched;
+        while (expected <= lastChunk && (prefetched = prefetcher.take(fileId, expected)) != null) {
+            writeSlice(prefetched, (long) expected * chunkSize, range, out);
+            expected++;
+        }
+        if (expected > lastChunk) {
+            return;
+        }
+
+        Document filter = new Document("files_id", fileId)
+                .append("n", new Document("$gte", expected).append("$lte", lastChunk));
+        try (MongoCursor<Document> chunks = mongoTemplate.getCollection(CHUNKS_COLLECTION)
+                .find(filter)
+                .sort(new Document("n", 1))
+                .batchSize(CHUNK_BATCH_SIZE)
+                .iterator()) {
+            while (chunks.hasNext()) {
+                Document chunk = chunks.next();
+                int n = chunk.getInteger("n");
+                if (n != expected) {
+                    throw new IOException("Missing chunk " + expected + " of media " + fileId);
+                }
+                byte[] data = chunk.get("data", Binary.class).getData();
+                writeSlice(data, (long) n * chunkSize, range, out);
+                expected++;
+            }
+        }
+        if (expected != lastChunk + 1) {
+            throw new IOException("Missing chunk " + expected + " of media " + fileId);
+        }
+    }
+
+    private void writeSlice(byte[] data, long chunkOffset, ByteRange range, OutputStream out) throws IOException {
+        int from = (int) Math.max(0, range.getStart() - chunkOffset);
+        int to = (int) Math.min(data.length, range.getEnd() - chunkOffset + 1);
+        if (to > from) {
+            out.write(data, from, to - from);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.backend.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.model.ByteRange;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Local disk tier in front of a remote media store. Media never changes
+ * after upload, so a file is downloaded once, renamed into place atomically
+ * and then served from disk with sendfile or FileChannel.transferTo. Concurrent misses for the same
+ * file share one download, and the least recently used files are deleted once
+ * the byte budget is exceeded. Files are pinned while a response uses them;
+ * a pinned file is evicted only after it is released, and one removed while
+ * pinned is deleted on its last release.
+ */
+@Service
+public class MediaDiskCache {
+    private static final Logger logger = Logger.getLogger(MediaDiskCache.class.getName());
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAX_QUEUED_DOWNLOADS = 32;
+    // Tomcat opens a sendfile by name after the servlet returns; once open, deleting it is harmless
+    private static final long SENDFILE_GRACE_MILLIS = 30000;
+
+    // Tomcat serves the file itself after the servlet returns when these are set
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private final MediaStore mediaStore;
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxBytes;
+    private final long maxFileBytes;
+    private final long waitMillis;
+    private final long waitMaxBytes;
+    private final ThreadPoolExecutor executor;
+
+    // Access-ordered; guarded by this
+    private final LinkedHashMap<ObjectId, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    // Removed while pinned, deleted once released; guarded by this
+    private final Set<Entry> retired = new HashSet<>();
+    private final Map<ObjectId, CompletableFuture<Path>> downloads = new ConcurrentHashMap<>();
+    private long cachedBytes;
+
+    public MediaDiskCache(
+            MediaStore mediaStore,
+            @Value("${media.disk-cache.enabled:true}") boolean enabled,
+            @Value("${media.disk-cache.directory:${java.io.tmpdir}/media-cache}") String directory,
+            @Value("${media.disk-cache.max-bytes:2147483648}") long maxBytes,
+            @Value("${media.disk-cache.max-file-bytes:268435456}") long maxFileBytes,
+            @Value("${media.disk-cache.wait-ms:2000}") long waitMillis,
+            @Value("${media.disk-cache.wait-max-bytes:8388608}") long waitMaxBytes,
+            @Value("${media.disk-cache.threads:2}") int threads) {
+        this.mediaStore = mediaStore;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        this.maxFileBytes = Math.min(maxFileBytes, maxBytes);
+        this.waitMillis = waitMillis;
+        this.waitMaxBytes = waitMaxBytes;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_DOWNLOADS));
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            // Rebuild the index from a previous run, oldest first so it is evicted first
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.collect(Collectors.toList());
+            }
+            files.sort(Comparator.comparingLong(this::lastModified));
+            synchronized (this) {
+                for (Path path : files) {
+                    String name = path.getFileName().toString();
+                    if (name.endsWith(TEMP_SUFFIX) || !ObjectId.isValid(name)) {
+                        Files.deleteIfExists(path);
+                        continue;
+                    }
+                    long size = Files.size(path);
+                    ObjectId fileId = new ObjectId(name);
+                    entries.put(fileId, new Entry(fileId, path, size));
+                    cachedBytes += size;
+                }
+                evictToBudget();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to prepare media disk cache at " + directory, e);
+        }
+    }
+
+    /**
+     * Returns the pinned cached copy of a file, downloading it first if
+     * needed. A miss on a small file waits a bounded time for the download;
+     * larger files are downloaded in the background while this request is
+     * served from the media store. Null means the caller should read from the
+     * media store instead. Every non-null result must be released.
+     */
+    public Entry acquire(GridFSFile file) {
+        if (!enabled || file.getLength() > maxFileBytes) {
+            return null;
+        }
+        ObjectId fileId = file.getObjectId();
+        synchronized (this) {
+            Entry cached = entries.get(fileId);
+            if (cached != null) {
+                cached.pins++;
+                return cached;
+            }
+        }
+
+        CompletableFuture<Path> download;
+        try {
+            download = downloads.computeIfAbsent(fileId,
+                    id -> CompletableFuture.supplyAsync(() -> populate(file), executor)
+                            .whenComplete((path, error) -> downloads.remove(id)));
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+        if (file.getLength() > waitMaxBytes) {
+            return null;
+        }
+        try {
+            download.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to cache media " + fileId, e);
+            return null;
+        }
+        synchronized (this) {
+            // The new file may already have been evicted again
+            Entry cached = entries.get(fileId);
+            if (cached != null) {
+                cached.pins++;
+            }
+            return cached;
+        }
+    }
+
+    public synchronized void release(Entry entry) {
+        entry.pins--;
+        sweepRetired();
+        evictToBudget();
+    }
+
+    /**
+     * Releases an entry whose file was handed to sendfile. It stays pinned
+     * for a grace period, because the connector only opens it later.
+     */
+    public synchronized void releaseAfterSendfile(Entry entry) {
+        entry.pinnedUntil = Math.max(entry.pinnedUntil, System.currentTimeMillis() + SENDFILE_GRACE_MILLIS);
+        release(entry);
+    }
+
+    public synchronized void remove(ObjectId fileId) {
+        Entry entry = entries.remove(fileId);
+        if (entry != null) {
+            cachedBytes -= entry.size;
+            if (entry.isPinned(System.currentTimeMillis())) {
+                retired.add(entry);
+            } else {
+                deleteQuietly(entry.path);
+            }
+        }
+        sweepRetired();
+    }
+
+    /**
+     * Hands the range to Tomcat's sendfile if the connector supports it.
+     * Returns false if the caller has to write the body itself.
+     */
+    public boolean trySendfile(HttpServletRequest request, Path path, ByteRange range) {
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            return false;
+        }
+        request.setAttribute(SENDFILE_FILENAME_ATTR, path.toString());
+        request.setAttribute(SENDFILE_START_ATTR, range.getStart());
+        request.setAttribute(SENDFILE_END_ATTR, range.getEnd() + 1);
+        return true;
+    }
+
+    /**
+     * Copies a range of a cached file with FileChannel.transferTo, which lets
+     * the kernel move the bytes when the target is a socket channel.
+     */
+    public void transfer(Path path, ByteRange range, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = range.getStart();
+            long remaining = range.getLength();
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    throw new IOException("Unexpected end of cached media " + path);
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Path populate(GridFSFile file) {
+        ObjectId fileId = file.getObjectId();
+        Path target = pathFor(fileId);
+        Path temp = directory.resolve(fileId.toHexString() + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                mediaStore.copyRange(file, new ByteRange(0, file.getLength() - 1), out);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new IllegalStateException("Failed to download media " + fileId, e);
+        }
+
+        synchronized (this) {
+            // Replacing the file keeps any pins on the existing entry valid, as the content is the same
+            if (!entries.containsKey(fileId)) {
+                entries.put(fileId, new Entry(fileId, target, file.getLength()));
+                cachedBytes += file.getLength();
+            }
+            evictToBudget();
+        }
+        return target;
+    }
+
+    private void evictToBudget() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (cachedBytes > maxBytes && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            if (entry.isPinned(now)) {
+                // Evicted on a later pass, once released
+                continue;
+            }
+            eldest.remove();
+            cachedBytes -= entry.size;
+            deleteQuietly(entry.path);
+        }
+    }
+
+    private void sweepRetired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> candidates = retired.iterator();
+        while (candidates.hasNext()) {
+            Entry entry = candidates.next();
+            if (entry.isPinned(now)) {
+                continue;
+            }
+            candidates.remove();
+            Entry current = entries.get(entry.fileId);
+            // A fresh download of the same file now owns the path
+            if (current == null) {
+                deleteQuietly(entry.path);
+            }
+        }
+    }
+
+    private Path pathFor(ObjectId fileId) {
+        return directory.resolve(fileId.toHexString());
+    }
+
+    private long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    public static class Entry {
+        private final ObjectId fileId;
+        private final Path path;
+        private final long size;
+        private int pins;
+        private long pinnedUntil;
+
+        Entry(ObjectId fileId, Path path, long size) {
+            this.fileId = fileId;
+            this.path = path;
+            this.size = size;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        private boolean isPinned(long now) {
+            return pins > 0 || pinnedUntil > now;
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Failed to delete cached media " + path, e);
+        }
+    }
+}
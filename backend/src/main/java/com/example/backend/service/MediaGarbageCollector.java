@@ -0,0 +1,325 @@
+package com.example.backend.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Releases media in the background. Request paths queue the ids a deleted or
+ * edited document no longer uses in media_gc_queue and return; a scheduled
+ * job claims queued releases in batches and retries failures with backoff.
+ *
+ * A second job walks media.files a batch at a time, resuming where the last
+ * run stopped, and reclaims files that no post, tutorial, user, product,
+ * upload session or queued release refers to, along with derived files whose
+ * original is gone. Files younger than the minimum age are left alone so
+ * uploads that are not saved into a document yet are never touched.
+ */
+@Service
+public class MediaGarbageCollector {
+    private static final Logger logger = Logger.getLogger(MediaGarbageCollector.class.getName());
+    private static final String QUEUE_COLLECTION = "media_gc_queue";
+    private static final String STATE_COLLECTION = "media_gc_state";
+    private static final String RECONCILER_STATE_ID = "reconciler";
+    private static final String MEDIA_URL_PREFIX = "/api/media/";
+    private static final long MAX_RETRY_DELAY_MILLIS = 3600000;
+
+    private final MongoTemplate mongoTemplate;
+    private final MediaStore mediaStore;
+    private final MediaBlobService mediaBlobService;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+    private final long leaseMillis;
+    private final boolean reconcileEnabled;
+    private final int reconcileBatchSize;
+    private final long minAgeMillis;
+
+    private final Counter released;
+    private final Counter reclaimed;
+
+    public MediaGarbageCollector(
+            MongoTemplate mongoTemplate,
+            MediaStore mediaStore,
+            MediaBlobService mediaBlobService,
+            MeterRegistry meterRegistry,
+            @Value("${media.gc.batch-size:100}") int batchSize,
+            @Value("${media.gc.max-attempts:8}") int maxAttempts,
+            @Value("${media.gc.retry-delay-ms:60000}") long retryDelayMillis,
+            @Value("${media.gc.lease-ms:600000}") long leaseMillis,
+            @Value("${media.gc.reconcile.enabled:true}") boolean reconcileEnabled,
+            @Value("${media.gc.reconcile.batch-size:500}") int reconcileBatchSize,
+            @Value("${media.gc.reconcile.min-age-hours:24}") long minAgeHours) {
+        this.mongoTemplate = mongoTemplate;
+        this.mediaStore = mediaStore;
+        this.mediaBlobService = mediaBlobService;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMillis = retryDelayMillis;
+        this.leaseMillis = leaseMillis;
+        this.reconcileEnabled = reconcileEnabled;
+        this.reconcileBatchSize = reconcileBatchSize;
+        this.minAgeMillis = minAgeHours * 3600000;
+        this.released = Counter.builder("media.gc.released").register(meterRegistry);
+        this.reclaimed = Counter.builder("media.gc.reclaimed")
+                .description("Unreferenced files deleted by the reconciler")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues one release per media id, given as an id or a media URL. Ids
+     * that are not media ids are skipped.
+     */
+    public void enqueueRelease(Collection<String> mediaIds) {
+        Date now = new Date();
+        List<Document> jobs = new ArrayList<>();
+        for (String mediaId : mediaIds) {
+            String id = toMediaId(mediaId);
+            if (id == null) {
+                continue;
+            }
+            // The job id doubles as the release id, so a retried job drops one reference only
+            jobs.add(new Document("_id", new ObjectId())
+                    .append("fileId", new ObjectId(id))
+                    .append("attempts", 0)
+                    .append("runAt", now)
+                    .append("createdAt", now));
+        }
+        if (!jobs.isEmpty()) {
+            mongoTemplate.getCollection(QUEUE_COLLECTION).insertMany(jobs);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${media.gc.interval-ms:10000}",
+            initialDelayString = "${media.gc.interval-ms:10000}")
+    public void drainQueue() {
+        try {
+            for (int i = 0; i < batchSize; i++) {
+                // Claiming pushes runAt past the lease, so a crashed worker's job is picked up again later
+                Date now = new Date();
+                Document job = mongoTemplate.findAndModify(
+                        new Query(Criteria.where("runAt").lte(now)).with(Sort.by("runAt")),
+                        new Update().set("runAt", new Date(now.getTime() + leaseMillis)).inc("attempts", 1),
+                        FindAndModifyOptions.options().returnNew(true),
+                        Document.class, QUEUE_COLLECTION);
+                if (job == null) {
+                    return;
+                }
+                process(job);
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to drain media release queue: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${media.gc.reconcile.interval-ms:60000}",
+            initialDelayString = "${media.gc.reconcile.interval-ms:60000}")
+    public void reconcile() {
+        if (!reconcileEnabled) {
+            return;
+        }
+        Document state = claimReconciler();
+        if (state == null) {
+            return;
+        }
+        ObjectId after = state.getObjectId("after");
+        try {
+            List<GridFSFile> files = new ArrayList<>();
+            mediaStore.find(after != null ? new Document("_id", new Document("$gt", after)) : new Document())
+                    .sort(new Document("_id", 1))
+                    .limit(reconcileBatchSize)
+                    .into(files);
+            reclaimUnreferenced(files);
+            // A short batch means the walk reached the end, so the next run starts over
+            after = files.size() < reconcileBatchSize ? null : files.get(files.size() - 1).getObjectId();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to reconcile media after " + after, e);
+        } finally {
+            mongoTemplate.getCollection(STATE_COLLECTION).updateOne(
+                    new Document("_id", RECONCILER_STATE_ID),
+                    new Document("$set", new Document("after", after).append("lockedUntil", new Date(0))));
+        }
+    }
+
+    private void process(Document job) {
+        ObjectId jobId = job.getObjectId("_id");
+        ObjectId fileId = job.getObjectId("fileId");
+        try {
+            mediaBlobService.release(fileId, jobId);
+            mongoTemplate.getCollection(QUEUE_COLLECTION).deleteOne(new Document("_id", jobId));
+            released.increment();
+        } catch (Exception e) {
+            int attempts = job.getInteger("attempts");
+            if (attempts >= maxAttempts) {
+                // The reference stays counted, so the reconciler keeps the file rather than guess
+                logger.log(Level.SEVERE, "Giving up releasing media " + fileId + " after " + attempts
+                        + " attempts", e);
+                mongoTemplate.getCollection(QUEUE_COLLECTION).deleteOne(new Document("_id", jobId));
+                return;
+            }
+            long delay = Math.min(retryDelayMillis << Math.min(attempts - 1, 20), MAX_RETRY_DELAY_MILLIS);
+            logger.log(Level.WARNING, "Failed to release media " + fileId + ", retrying in " + delay + " ms: "
+                    + e.getMessage());
+            mongoTemplate.getCollection(QUEUE_COLLECTION).updateOne(new Document("_id", jobId),
+                    new Document("$set", new Document("runAt", new Date(System.currentTimeMillis() + delay))
+                            .append("lastError", String.valueOf(e.getMessage()))));
+        }
+    }
+
+    /**
+     * Takes the reconciler lease so only one instance walks the files at a
+     * time. Returns null if another instance holds it.
+     */
+    private Document claimReconciler() {
+        Date now = new Date();
+        try {
+            return mongoTemplate.findAndModify(
+                    new Query(Criteria.where("_id").is(RECONCILER_STATE_ID).and("lockedUntil").lte(now)),
+                    new Update().set("lockedUntil", new Date(now.getTime() + leaseMillis)),
+                    FindAndModifyOptions.options().returnNew(true).upsert(true),
+                    Document.class, STATE_COLLECTION);
+        } catch (DuplicateKeyException e) {
+            return null;
+        }
+    }
+
+    private void reclaimUnreferenced(List<GridFSFile> files) {
+        Date cutoff = new Date(System.currentTimeMillis() - minAgeMillis);
+        List<GridFSFile> originals = new ArrayList<>();
+        for (GridFSFile file : files) {
+            if (!file.getUploadDate().before(cutoff)) {
+                continue;
+            }
+            Object variantOf = file.getMetadata() != null ? file.getMetadata().get("variantOf") : null;
+            if (variantOf instanceof ObjectId) {
+                try {
+                    reclaimDerived(file, (ObjectId) variantOf);
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, "Failed to reclaim derived media " + file.getObjectId(), e);
+                }
+            } else {
+                originals.add(file);
+            }
+        }
+        if (originals.isEmpty()) {
+            return;
+        }
+
+        Set<String> referenced = findReferenced(originals);
+        for (GridFSFile file : originals) {
+            if (referenced.contains(file.getObjectId().toHexString())) {
+                continue;
+            }
+            try {
+                if (mediaBlobService.reclaim(file.getObjectId(), cutoff)) {
+                    logger.log(Level.INFO, "Reclaimed unreferenced media " + file.getObjectId());
+                    reclaimed.increment();
+                }
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed to reclaim media " + file.getObjectId(), e);
+            }
+        }
+    }
+
+    /**
+     * Deletes a variant or rewritten copy whose original is gone, and a
+     * rewritten video the original was never switched to.
+     */
+    private void reclaimDerived(GridFSFile file, ObjectId originalId) {
+        GridFSFile original = mediaStore.find(originalId);
+        boolean orphaned = original == null;
+        if (!orphaned && !"variant".equals(file.getMetadata().getString("type"))) {
+            Object served = original.getMetadata() != null ? original.getMetadata().get("faststart") : null;
+            orphaned = !file.getObjectId().equals(served);
+        }
+        if (orphaned) {
+            mediaStore.delete(file.getObjectId());
+            reclaimed.increment();
+        }
+    }
+
+    Set<String> findReferenced(List<GridFSFile> files) {
+        List<String> ids = new ArrayList<>();
+        List<ObjectId> objectIds = new ArrayList<>();
+        // Fields holding a media reference store either the bare id or its URL
+        List<String> idsAndUrls = new ArrayList<>();
+        for (GridFSFile file : files) {
+            ids.add(file.getObjectId().toHexString());
+            objectIds.add(file.getObjectId());
+            idsAndUrls.add(file.getObjectId().toHexString());
+            idsAndUrls.add(MEDIA_URL_PREFIX + file.getObjectId().toHexString());
+        }
+
+        Set<String> referenced = new HashSet<>();
+        // Older edits could drop media from mediaIds while a URL field still pointed at it
+        collect(referenced, "posts", new Criteria().orOperator(
+                        Criteria.where("mediaIds").in(ids),
+                        Criteria.where("videoUrl").in(idsAndUrls),
+                        Criteria.where("imageUrls").in(idsAndUrls)),
+                "mediaIds", "videoUrl", "imageUrls");
+        collect(referenced, "tutorials", new Criteria().orOperator(
+                        Criteria.where("mediaIds").in(ids),
+                        Criteria.where("videoUrl").in(idsAndUrls),
+                        Criteria.where("imageUrls").in(idsAndUrls)),
+                "mediaIds", "videoUrl", "imageUrls");
+        collect(referenced, "users", Criteria.where("profilePicture").in(idsAndUrls), "profilePicture");
+        collect(referenced, "products", Criteria.where("imageUrls").in(idsAndUrls), "imageUrls");
+        // Unclaimed uploads expire with their session; queued releases delete the file themselves
+        collect(referenced, "upload_sessions", Criteria.where("fileId").in(ids), "fileId");
+        collect(referenced, QUEUE_COLLECTION, Criteria.where("fileId").in(objectIds), "fileId");
+        return referenced;
+    }
+
+    private void collect(Set<String> referenced, String collection, Criteria criteria, String... fields) {
+        Query query = new Query(criteria);
+        query.fields().include(fields);
+        for (Document document : mongoTemplate.find(query, Document.class, collection)) {
+            for (String field : fields) {
+                Object value = document.get(field);
+                if (value == null) {
+                    continue;
+                }
+                Collection<?> values = value instanceof Collection ? (Collection<?>) value : List.of(value);
+                for (Object item : values) {
+                    String id = item instanceof ObjectId
+                            ? ((ObjectId) item).toHexString()
+                            : toMediaId(String.valueOf(item));
+                    if (id != null) {
+                        referenced.add(id);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String toMediaId(String value) {
+        if (value == null) {
+            return null;
+        }
+        String id = value.startsWith(MEDIA_URL_PREFIX) ? value.substring(MEDIA_URL_PREFIX.length()) : value;
+        return ObjectId.isValid(id) ? id : null;
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.backend.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.model.ByteRange;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Off-heap cache for small media such as avatars and thumbnails. Objects are
+ * copied into fixed-size slots carved out of direct-buffer slabs, one slab per
+ * size class, so the cache adds no garbage-collected heap. Hits are served
+ * from read-only views of the slot.
+ *
+ * Admission is TinyLFU-style: when a size class is full, a new object only
+ * replaces the least recently used one if it has been requested more often
+ * according to a small count-min sketch.
+ */
+@Service
+public class MediaMemoryCache {
+    private static final int MIN_SLOT_BYTES = 4096;
+    private static final int COPY_BUFFER_BYTES = 16384;
+
+    private final MediaStore mediaStore;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final int maxObjectBytes;
+    private final int slabBytes;
+    private final List<SizeClass> sizeClasses = new ArrayList<>();
+    private final Map<ObjectId, Entry> index = new HashMap<>();
+    private final FrequencySketch sketch;
+    private final ThreadLocal<byte[]> copyBuffers = ThreadLocal.withInitial(() -> new byte[COPY_BUFFER_BYTES]);
+    private long allocatedBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter rejected;
+
+    public MediaMemoryCache(
+            MediaStore mediaStore,
+            MeterRegistry meterRegistry,
+            @Value("${media.memory-cache.enabled:true}") boolean enabled,
+            @Value("${media.memory-cache.max-bytes:67108864}") long maxBytes,
+            @Value("${media.memory-cache.max-object-bytes:262144}") int maxObjectBytes,
+            @Value("${media.memory-cache.slab-bytes:1048576}") int slabBytes) {
+        this.mediaStore = mediaStore;
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.slabBytes = Math.max(slabBytes, maxObjectBytes);
+        int largestSlot = MIN_SLOT_BYTES;
+        sizeClasses.add(new SizeClass(largestSlot));
+        while (largestSlot < maxObjectBytes) {
+            largestSlot *= 2;
+            sizeClasses.add(new SizeClass(largestSlot));
+        }
+        this.maxObjectBytes = maxObjectBytes;
+        this.sketch = new FrequencySketch((int) Math.max(1024, maxBytes / MIN_SLOT_BYTES));
+
+        this.hits = Counter.builder("media.memory-cache.hits").register(meterRegistry);
+        this.misses = Counter.builder("media.memory-cache.misses").register(meterRegistry);
+        this.rejected = Counter.builder("media.memory-cache.rejected")
+                .description("Misses not admitted because the cached objects are requested more often")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns a pinned entry for a small file, loading and admitting it if
+     * it is requested often enough. Null means the caller should serve the
+     * file from another tier. Every non-null result must be released.
+     */
+    public Entry acquire(GridFSFile file) throws IOException {
+        if (!enabled || file.getLength() > maxObjectBytes || file.getLength() == 0) {
+            return null;
+        }
+        ObjectId fileId = file.getObjectId();
+        synchronized (this) {
+            sketch.increment(fileId);
+            Entry cached = index.get(fileId);
+            if (cached != null) {
+                cached.sizeClass.lru.get(fileId);
+                cached.pins++;
+                hits.increment();
+                return cached;
+            }
+            misses.increment();
+            if (!canAdmit(fileId, (int) file.getLength())) {
+                rejected.increment();
+                return null;
+            }
+        }
+
+        // Small enough to load in one piece outside the lock
+        ByteArrayOutputStream loaded = new ByteArrayOutputStream((int) file.getLength());
+        mediaStore.copyRange(file, new ByteRange(0, file.getLength() - 1), loaded);
+        byte[] data = loaded.toByteArray();
+
+        synchronized (this) {
+            Entry cached = index.get(fileId);
+            if (cached == null) {
+                cached = store(fileId, data);
+                if (cached == null) {
+                    return null;
+                }
+            }
+            cached.pins++;
+            return cached;
+        }
+    }
+
+    public synchronized void release(Entry entry) {
+        entry.pins--;
+        if (entry.pins == 0 && entry.evicted) {
+            entry.sizeClass.free.push(entry.slot);
+        }
+    }
+
+    public synchronized void remove(ObjectId fileId) {
+        Entry entry = index.remove(fileId);
+        if (entry != null) {
+            evict(entry);
+        }
+    }
+
+    /**
+     * Writes a range of a pinned entry through a per-thread copy buffer, so
+     * a hit allocates no heap buffers.
+     */
+    public void write(Entry entry, ByteRange range, OutputStream out) throws IOException {
+        ByteBuffer view = entry.slot.asReadOnlyBuffer();
+        view.limit((int) range.getEnd() + 1).position((int) range.getStart());
+        byte[] buffer = copyBuffers.get();
+        while (view.hasRemaining()) {
+            int length = Math.min(buffer.length, view.remaining());
+            view.get(buffer, 0, length);
+            out.write(buffer, 0, length);
+        }
+    }
+
+    private boolean canAdmit(ObjectId fileId, int length) {
+        SizeClass sizeClass = sizeClassFor(length);
+        if (!sizeClass.free.isEmpty() || allocatedBytes + slabBytes <= maxBytes) {
+            return true;
+        }
+        Entry victim = sizeClass.eldestUnpinned();
+        return victim != null && sketch.frequency(fileId) > sketch.frequency(victim.fileId);
+    }
+
+    private Entry store(ObjectId fileId, byte[] data) {
+        SizeClass sizeClass = sizeClassFor(data.length);
+        if (sizeClass.free.isEmpty()) {
+            if (allocatedBytes + slabBytes <= maxBytes) {
+                allocateSlab(sizeClass);
+            } else {
+                Entry victim = sizeClass.eldestUnpinned();
+                if (victim == null || sketch.frequency(fileId) <= sketch.frequency(victim.fileId)) {
+                    rejected.increment();
+                    return null;
+                }
+                index.remove(victim.fileId);
+                evict(victim);
+            }
+        }
+
+        ByteBuffer slot = sizeClass.free.pop();
+        slot.clear();
+        slot.put(data);
+        slot.flip();
+        Entry entry = new Entry(fileId, slot, sizeClass);
+        index.put(fileId, entry);
+        sizeClass.lru.put(fileId, entry);
+        return entry;
+    }
+
+    private void evict(Entry entry) {
+        entry.sizeClass.lru.remove(entry.fileId);
+        entry.evicted = true;
+        // A slot still being written to a client is reused only once released
+        if (entry.pins == 0) {
+            entry.sizeClass.free.push(entry.slot);
+        }
+    }
+
+    private void allocateSlab(SizeClass sizeClass) {
+        ByteBuffer slab = ByteBuffer.allocateDirect(slabBytes);
+        for (int offset = 0; offset + sizeClass.slotBytes <= slabBytes; offset += sizeClass.slotBytes) {
+            sizeClass.free.push(slab.slice(offset, sizeClass.slotBytes));
+        }
+        allocatedBytes += slabBytes;
+    }
+
+    private SizeClass sizeClassFor(int length) {
+        for (SizeClass sizeClass : sizeClasses) {
+            if (length <= sizeClass.slotBytes) {
+                return sizeClass;
+            }
+        }
+        throw new IllegalArgumentException("Object too large for the memory cache");
+    }
+
+    public static class Entry {
+        private final ObjectId fileId;
+        private final ByteBuffer slot;
+        private final SizeClass sizeClass;
+        private int pins;
+        private boolean evicted;
+
+        Entry(ObjectId fileId, ByteBuffer slot, SizeClass sizeClass) {
+            this.fileId = fileId;
+            this.slot = slot;
+            this.sizeClass = sizeClass;
+        }
+    }
+
+    private static class SizeClass {
+        private final int slotBytes;
+        private final Deque<ByteBuffer> free = new ArrayDeque<>();
+        private final LinkedHashMap<ObjectId, Entry> lru = new LinkedHashMap<>(64, 0.75f, true);
+
+        SizeClass(int slotBytes) {
+            this.slotBytes = slotBytes;
+        }
+
+        Entry eldestUnpinned() {
+            for (Entry entry : lru.values()) {
+                if (entry.pins == 0) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Count-min sketch of request frequencies with four rows of saturating
+     * counters. All counters are halved periodically so old popularity fades.
+     */
+    private static class FrequencySketch {
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+        private static final int MAX_COUNT = 15;
+
+        private final int[][] rows;
+        private final int mask;
+        private final int resetThreshold;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int width = Integer.highestOneBit(Math.max(64, expectedEntries) - 1) << 1;
+            this.rows = new int[SEEDS.length][width];
+            this.mask = width - 1;
+            this.resetThreshold = width * 10;
+        }
+
+        void increment(ObjectId key) {
+            int hash = key.hashCode();
+            for (int i = 0; i < rows.length; i++) {
+                int index = indexOf(hash, i);
+                if (rows[i][index] < MAX_COUNT) {
+                    rows[i][index]++;
+                }
+            }
+            if (++additions >= resetThreshold) {
+                for (int[] row : rows) {
+                    for (int j = 0; j < row.length; j++) {
+                        row[j] >>>= 1;
+                    }
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(ObjectId key) {
+            int hash = key.hashCode();
+            int min = MAX_COUNT;
+            for (int i = 0; i < rows.length; i++) {
+                min = Math.min(min, rows[i][indexOf(hash, i)]);
+            }
+            return min;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.backend.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Keeps recently requested media.files entries in memory so repeated range
+ * requests for the same file skip the lookup. Entries never change after
+ * upload except through this application, which removes them when a file is
+ * deleted or its entry rewritten; the expiry only bounds how long another
+ * instance's changes go unseen. Concurrent misses for the same id share one
+ * query, and missing files are not cached because piecewise uploads publish
+ * their entry later.
+ */
+@Service
+public class MediaMetadataCache {
+    private final GridFSBucket catalog;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // Access-ordered; guarded by this
+    private final LinkedHashMap<ObjectId, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<ObjectId, CompletableFuture<GridFSFile>> loads = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public MediaMetadataCache(
+            MongoTemplate mongoTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${media.metadata-cache.enabled:true}") boolean enabled,
+            @Value("${media.metadata-cache.max-entries:10000}") int maxEntries,
+            @Value("${media.metadata-cache.ttl-seconds:300}") long ttlSeconds) {
+        // Both media store engines keep their file entries in media.files
+        this.catalog = GridFSBuckets.create(mongoTemplate.getDb(), "media");
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.hits = Counter.builder("media.metadata-cache.hits").register(meterRegistry);
+        this.misses = Counter.builder("media.metadata-cache.misses").register(meterRegistry);
+    }
+
+    /**
+     * Returns the file entry for an id, or null if there is no such file.
+     */
+    public GridFSFile find(ObjectId fileId) {
+        if (!enabled) {
+            return load(fileId);
+        }
+        synchronized (this) {
+            Entry cached = entries.get(fileId);
+            if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+                hits.increment();
+                return cached.file;
+            }
+            entries.remove(fileId);
+        }
+        misses.increment();
+
+        CompletableFuture<GridFSFile> load = new CompletableFuture<>();
+        CompletableFuture<GridFSFile> running = loads.putIfAbsent(fileId, load);
+        if (running != null) {
+            return join(running);
+        }
+        try {
+            GridFSFile file = load(fileId);
+            synchronized (this) {
+                // A removal while loading drops the load, so a stale entry is never put back
+                if (loads.remove(fileId, load) && file != null) {
+                    entries.put(fileId, new Entry(file, System.currentTimeMillis() + ttlMillis));
+                    trimToSize();
+                }
+            }
+            load.complete(file);
+            return file;
+        } catch (RuntimeException e) {
+            loads.remove(fileId, load);
+            load.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Forgets a file's entry after it was deleted or rewritten.
+     */
+    public synchronized void remove(ObjectId fileId) {
+        entries.remove(fileId);
+        loads.remove(fileId);
+    }
+
+    private GridFSFile load(ObjectId fileId) {
+        return catalog.find(new Document("_id", fileId)).first();
+    }
+
+    private GridFSFile join(CompletableFuture<GridFSFile> load) {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading media metadata", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause()
+                    : new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<ObjectId, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private static class Entry {
+        private final GridFSFile file;
+        private final long expiresAt;
+
+        Entry(GridFSFile file, long expiresAt) {
+            this.file = file;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.backend.service;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Read-ahead for media played as consecutive byte ranges. When a request for
+ * a file continues where the previous one ended, the next chunks are fetched
+ * in the background into a byte-bounded buffer, so the following request is
+ * served from memory. Buffered chunks that expire or are evicted unread are
+ * counted as wasted.
+ */
+@Service
+public class MediaPrefetcher {
+    private static final Logger logger = Logger.getLogger(MediaPrefetcher.class.getName());
+    private static final String CHUNKS_COLLECTION = "media.chunks";
+    private static final int MAX_TRACKED_FILES = 1024;
+    private static final int MAX_QUEUED_PREFETCHES = 64;
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final int prefetchChunks;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final ThreadPoolExecutor executor;
+
+    // Guarded by this
+    private final Map<ObjectId, Integer> lastChunkServed = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ObjectId, Integer> eldest) {
+            return size() > MAX_TRACKED_FILES;
+        }
+    };
+    private final LinkedHashMap<String, PrefetchedChunk> buffered = new LinkedHashMap<>();
+    private final Set<String> inFlight = new HashSet<>();
+    private long bufferedBytes;
+
+    private final Counter hits;
+    private final Counter wasted;
+    private final Counter fetched;
+
+    public MediaPrefetcher(
+            MongoTemplate mongoTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${media.prefetch.enabled:true}") boolean enabled,
+            @Value("${media.prefetch.chunks:4}") int prefetchChunks,
+            @Value("${media.prefetch.max-bytes:67108864}") long maxBytes,
+            @Value("${media.prefetch.ttl-ms:30000}") long ttlMillis,
+            @Value("${media.prefetch.threads:2}") int threads) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.prefetchChunks = prefetchChunks;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_PREFETCHES));
+
+        this.hits = Counter.builder("media.prefetch.hits")
+                .description("Chunks served from the read-ahead buffer")
+                .register(meterRegistry);
+        this.wasted = Counter.builder("media.prefetch.wasted")
+                .description("Prefetched chunks dropped without being served")
+                .register(meterRegistry);
+        this.fetched = Counter.builder("media.prefetch.fetched")
+                .description("Chunks read ahead from GridFS")
+                .register(meterRegistry);
+        Gauge.builder("media.prefetch.buffered.bytes", this, MediaPrefetcher::getBufferedBytes)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records that chunks firstChunk..lastChunk of a file are being served
+     * and schedules read-ahead if this continues the previous request.
+     */
+    public void recordAccess(GridFSFile file, int firstChunk, int lastChunk) {
+        if (!enabled) {
+            return;
+        }
+        ObjectId fileId = file.getObjectId();
+        int totalChunks = (int) ((file.getLength() + file.getChunkSize() - 1) / file.getChunkSize());
+        int from = lastChunk + 1;
+        int to = Math.min(lastChunk + prefetchChunks, totalChunks - 1);
+
+        synchronized (this) {
+            Integer previous = lastChunkServed.put(fileId, lastChunk);
+            boolean sequential = previous != null && (firstChunk == previous || firstChunk == previous + 1);
+            if (!sequential || from > to) {
+                return;
+            }
+            // Only fetch what is neither buffered nor already on its way
+            while (from <= to && isBufferedOrInFlight(fileId, from)) {
+                from++;
+            }
+            while (to >= from && isBufferedOrInFlight(fileId, to)) {
+                to--;
+            }
+            if (from > to) {
+                return;
+            }
+            for (int n = from; n <= to; n++) {
+                inFlight.add(key(fileId, n));
+            }
+        }
+
+        int first = from;
+        int last = to;
+        try {
+            executor.execute(() -> prefetch(fileId, first, last));
+        } catch (RejectedExecutionException e) {
+            // Prefetching is best effort; drop it when the queue is full
+            clearInFlight(fileId, first, last);
+        }
+    }
+
+    /**
+     * Removes and returns a buffered chunk, or null if it was not read ahead.
+     */
+    public byte[] take(ObjectId fileId, int n) {
+        if (!enabled) {
+            return null;
+        }
+        PrefetchedChunk chunk;
+        synchronized (this) {
+            chunk = buffered.remove(key(fileId, n));
+            if (chunk == null) {
+                return null;
+            }
+            bufferedBytes -= chunk.data.length;
+        }
+        hits.increment();
+        return chunk.data;
+    }
+
+    public synchronized long getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void prefetch(ObjectId fileId, int firstChunk, int lastChunk) {
+        Document filter = new Document("files_id", fileId)
+                .append("n", new Document("$gte", firstChunk).append("$lte", lastChunk));
+        try (MongoCursor<Document> chunks = mongoTemplate.getCollection(CHUNKS_COLLECTION)
+                .find(filter)
+                .sort(new Document("n", 1))
+                .iterator()) {
+            while (chunks.hasNext()) {
+                Document chunk = chunks.next();
+                store(fileId, chunk.getInteger("n"), chunk.get("data", Binary.class).getData());
+                fetched.increment();
+            }
+        } catch (Exception e) {
+            logger.log(Level.FINE, "Prefetch failed for media " + fileId, e);
+        } finally {
+            clearInFlight(fileId, firstChunk, lastChunk);
+        }
+    }
+
+    private synchronized void clearInFlight(ObjectId fileId, int firstChunk, int lastChunk) {
+        for (int n = firstChunk; n <= lastChunk; n++) {
+            inFlight.remove(key(fileId, n));
+        }
+    }
+
+    private synchronized void store(ObjectId fileId, int n, byte[] data) {
+        if (data.length > maxBytes) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Iterator<PrefetchedChunk> oldest = buffered.values().iterator();
+        while (oldest.hasNext()) {
+            PrefetchedChunk candidate = oldest.next();
+            if (bufferedBytes + data.length <= maxBytes && now - candidate.storedAt < ttlMillis) {
+                break;
+            }
+            oldest.remove();
+            bufferedBytes -= candidate.data.length;
+            wasted.increment();
+        }
+        PrefetchedChunk replaced = buffered.put(key(fileId, n), new PrefetchedChunk(data, now));
+        bufferedBytes += data.length;
+        if (replaced != null) {
+            bufferedBytes -= replaced.data.length;
+        }
+    }
+
+    private boolean isBufferedOrInFlight(ObjectId fileId, int n) {
+        String key = key(fileId, n);
+        return buffered.containsKey(key) || inFlight.contains(key);
+    }
+
+    private static String key(ObjectId fileId, int n) {
+        return fileId.toHexString() + ":" + n;
+    }
+
+    private static class PrefetchedChunk {
+        private final byte[] data;
+        private final long storedAt;
+
+        PrefetchedChunk(byte[] data, long storedAt) {
+            this.data = data;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -2,43 +2,166 @@ package com.example.backend.service;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import com.mongodb.client.gridfs.GridFSBucket;
-import com.mongodb.client.gridfs.GridFSBuckets;
-import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import com.example.backend.model.ByteRange;
+import com.mongodb.client.gridfs.model.GridFSFile;
 
 @Service
 public class MediaService {
-    private final GridFSBucket gridFSBucket;
+    private static final Logger logger = Logger.getLogger(MediaService.class.getName());
+
+    private final MediaStore mediaStore;
+    private final MediaMetadataCache metadataCache;
+    private final ImageVariantService imageVariantService;
+    private final VideoFaststartService videoFaststartService;
+    private final MediaBlobService mediaBlobService;
+    private final String cacheControl;
 
     @Autowired
-    public MediaService(MongoTemplate mongoTemplate) {
-        this.gridFSBucket = GridFSBuckets.create(mongoTemplate.getDb(), "media");
+    public MediaService(MediaStore mediaStore, MediaMetadataCache metadataCache,
+            ImageVariantService imageVariantService, VideoFaststartService videoFaststartService,
+            MediaBlobService mediaBlobService,
+            @Value("${media.cache-control:public, max-age=31536000, immutable}") String cacheControl) {
+        this.mediaStore = mediaStore;
+        this.metadataCache = metadataCache;
+        this.imageVariantService = imageVariantService;
+        this.videoFaststartService = videoFaststartService;
+        this.mediaBlobService = mediaBlobService;
+        this.cacheControl = cacheControl;
     }
 
     public String saveMedia(MultipartFile file, String type) throws IOException {
-        GridFSUploadOptions options = new GridFSUploadOptions()
-                .metadata(new org.bson.Document("type", type));
-        
-        ObjectId fileId = gridFSBucket.uploadFromStream(
+        return saveMedia(file, type, new Document());
+    }
+
+    public String saveMedia(MultipartFile file, String type, Document metadata) throws IOException {
+        if (!"video".equals(type)) {
+            imageVariantService.withDimensions(file, metadata);
+        }
+        ObjectId fileId = mediaBlobService.store(
+                file,
                 file.getOriginalFilename() != null ? file.getOriginalFilename() : "media_" + type,
-                file.getInputStream(),
-                options);
+                metadata.append("type", type));
+        if ("video".equals(type)) {
+            videoFaststartService.rewriteAsync(fileId);
+        } else {
+            imageVariantService.generateAsync(fileId);
+        }
                 
         return fileId.toHexString();
     }
 
     public void downloadMedia(String fileId, OutputStream outputStream) {
         try {
-            gridFSBucket.downloadToStream(new ObjectId(fileId), outputStream);
+            GridFSFile file = mediaStore.find(new ObjectId(fileId));
+            if (file == null) {
+                throw new IllegalArgumentException("No such file");
+            }
+            mediaStore.copyRange(file, new ByteRange(0, file.getLength() - 1), outputStream);
         } catch (Exception e) {
             throw new RuntimeException("Error downloading file: " + fileId, e);
         }
     }
+
+    public GridFSFile findFile(ObjectId fileId) {
+        return metadataCache.find(fileId);
+    }
+
+    /**
+     * Returns the file's path if the media store keeps it on local disk.
+     */
+    public Path localPath(GridFSFile file) {
+        return mediaStore.localPath(file);
+    }
+
+    public String getCacheControl() {
+        return cacheControl;
+    }
+
+    /**
+     * Stored files are never modified and their ids are never reused, so the
+     * id alone is a strong validator for the bytes.
+     */
+    public String etag(GridFSFile file) {
+        return "\"" + file.getObjectId().toHexString() + "\"";
+    }
+
+    /**
+     * Writes one range of a stored file straight from the media store.
+     */
+    public void copyRange(GridFSFile file, ByteRange range, OutputStream out) throws IOException {
+        mediaStore.copyRange(file, range, out);
+    }
+
+    /**
+     * Writes several ranges as a multipart/byteranges body.
+     */
+    public void copyRanges(GridFSFile file, List<ByteRange> ranges, String contentType, String boundary,
+            OutputStream out) throws IOException {
+        for (ByteRange range : ranges) {
+            out.write(partHeader(range, file.getLength(), contentType, boundary));
+            mediaStore.copyRange(file, range, out);
+        }
+        out.write(closingBoundary(boundary));
+    }
+
+    public long multipartLength(List<ByteRange> ranges, long totalLength, String contentType, String boundary) {
+        long length = closingBoundary(boundary).length;
+        for (ByteRange range : ranges) {
+            length += partHeader(range, totalLength, contentType, boundary).length + range.getLength();
+        }
+        return length;
+    }
+
+    public String determineContentType(String filename, Document metadata) {
+        String defaultType = "application/octet-stream";
+
+        try {
+            if (metadata != null) {
+                String contentType = metadata.getString("contentType");
+                if (contentType != null) return contentType;
+
+                String type = metadata.getString("type");
+                if ("image".equals(type)) return "image/jpeg";
+                if ("video".equals(type)) return "video/mp4";
+            }
+
+            if (filename != null) {
+                String lower = filename.toLowerCase();
+                if (lower.endsWith(".jpg") || lower.endsWith(".jpeg")) return "image/jpeg";
+                if (lower.endsWith(".png")) return "image/png";
+                if (lower.endsWith(".gif")) return "image/gif";
+                if (lower.endsWith(".webp")) return "image/webp";
+                if (lower.endsWith(".mp4")) return "video/mp4";
+                if (lower.endsWith(".mov")) return "video/quicktime";
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Error determining content type", e);
+        }
+
+        return defaultType;
+    }
+
+    private byte[] partHeader(ByteRange range, long totalLength, String contentType, String boundary) {
+        String header = "\r\n--" + boundary + "\r\n"
+                + "Content-Type: " + contentType + "\r\n"
+                + "Content-Range: " + range.toContentRange(totalLength) + "\r\n\r\n";
+        return header.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private byte[] closingBoundary(String boundary) {
+        return ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
 }
@@ -0,0 +1,74 @@
+package com.example.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import com.example.backend.model.ByteRange;
+import com.mongodb.client.gridfs.GridFSFindIterable;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+/**
+ * Where media bytes live. Every engine keeps its file entries (name, length,
+ * upload date and metadata) in the media.files collection, so lookups,
+ * variants and deduplication behave the same whichever engine holds the
+ * content. The engine is chosen with the media.store property.
+ */
+public interface MediaStore {
+
+    /**
+     * Writes a complete file and returns its new id.
+     */
+    ObjectId store(String filename, InputStream content, Document metadata) throws IOException;
+
+    GridFSFindIterable find(Bson filter);
+
+    default GridFSFile find(ObjectId fileId) {
+        return find(new Document("_id", fileId)).first();
+    }
+
+    void copyRange(GridFSFile file, ByteRange range, OutputStream out) throws IOException;
+
+    InputStream openStream(GridFSFile file) throws IOException;
+
+    /**
+     * Returns the file's location if the engine keeps it on local disk, so
+     * it can be served with sendfile or FileChannel.transferTo.
+     */
+    default Path localPath(GridFSFile file) {
+        return null;
+    }
+
+    /**
+     * Removes a file's entry and content, including chunks of an upload that
+     * was never published. Deleting a missing file is not an error.
+     */
+    void delete(ObjectId fileId);
+
+    /**
+     * Stores chunk n of a file that is uploaded piecewise, replacing any
+     * earlier copy of the same chunk.
+     */
+    void writeChunk(ObjectId fileId, int n, byte[] data, int length) throws IOException;
+
+    List<Integer> listChunks(ObjectId fileId);
+
+    /**
+     * Writes chunks 0..totalChunks-1 to out in order and returns the number
+     * of bytes written. Fails if a chunk is missing.
+     */
+    long readChunks(ObjectId fileId, int totalChunks, OutputStream out) throws IOException;
+
+    /**
+     * Makes a piecewise upload readable by adding its file entry. Publishing
+     * the same file again replaces the entry.
+     */
+    void publish(ObjectId fileId, String filename, long length, int chunkSize, Document metadata)
+            throws IOException;
+}
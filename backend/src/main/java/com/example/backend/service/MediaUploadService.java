@@ -0,0 +1,373 @@
+package com.example.backend.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.tika.Tika;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.model.UploadSession;
+
+/**
+ * Resumable uploads for large videos. A session fixes the file's id and
+ * chunk size up front, each numbered chunk is written to the media store on
+ * its own, and completing the session publishes the file. A dropped connection only costs the chunk in flight, and retrying
+ * a chunk overwrites it. Smaller videos can instead be streamed in one
+ * multipart request that is parsed as it arrives.
+ */
+@Service
+public class MediaUploadService {
+    private static final Logger logger = Logger.getLogger(MediaUploadService.class.getName());
+    private static final String COMPLETING = "COMPLETING";
+    // Chunk writes in flight, kept on the session document only
+    private static final String WRITERS_FIELD = "writers";
+    private static final List<String> ALLOWED_VIDEO_TYPES = List.of("video/mp4", "video/quicktime");
+    private static final int MAX_FIELD_BYTES = 256;
+
+    private final MongoTemplate mongoTemplate;
+    private final MediaStore mediaStore;
+    private final MediaBlobService mediaBlobService;
+    private final VideoFaststartService videoFaststartService;
+    private final int chunkSize;
+    private final long maxBytes;
+    private final double maxDurationSeconds;
+    private final Duration sessionTtl;
+    private final Tika tika = new Tika();
+
+    public MediaUploadService(
+            MongoTemplate mongoTemplate,
+            MediaStore mediaStore,
+            MediaBlobService mediaBlobService,
+            VideoFaststartService videoFaststartService,
+            @Value("${media.uploads.chunk-size:261120}") int chunkSize,
+            @Value("${media.uploads.max-bytes:52428800}") long maxBytes,
+            @Value("${media.uploads.max-duration-seconds:600}") double maxDurationSeconds,
+            @Value("${media.uploads.session-ttl-hours:24}") long sessionTtlHours) {
+        this.mongoTemplate = mongoTemplate;
+        this.mediaStore = mediaStore;
+        this.mediaBlobService = mediaBlobService;
+        this.videoFaststartService = videoFaststartService;
+        this.chunkSize = chunkSize;
+        this.maxBytes = maxBytes;
+        this.maxDurationSeconds = maxDurationSeconds;
+        this.sessionTtl = Duration.ofHours(sessionTtlHours);
+    }
+
+    public UploadSession createSession(String userId, String filename, String contentType, long totalSize) {
+        if (userId == null || userId.isEmpty()) {
+            throw new IllegalArgumentException("User ID is required");
+        }
+        if (contentType == null || !ALLOWED_VIDEO_TYPES.contains(contentType)) {
+            throw new IllegalArgumentException("Only MP4 and QuickTime videos are supported");
+        }
+        if (totalSize <= 0 || totalSize > maxBytes) {
+            throw new IllegalArgumentException("Video size must be less than " + maxBytes / (1024 * 1024) + "MB");
+        }
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setUserId(userId);
+        session.setFilename(filename != null && !filename.isEmpty() ? filename : "media_video");
+        session.setContentType(contentType);
+        session.setTotalSize(totalSize);
+        session.setChunkSize(chunkSize);
+        session.setTotalChunks((int) ((totalSize + chunkSize - 1) / chunkSize));
+        session.setFileId(new ObjectId().toHexString());
+        session.setStatus(UploadSession.UPLOADING);
+        session.setCreatedAt(LocalDateTime.now());
+        session.setUpdatedAt(session.getCreatedAt());
+        return mongoTemplate.insert(session);
+    }
+
+    public UploadSession getSession(String uploadId) {
+        UploadSession session = mongoTemplate.findById(uploadId, UploadSession.class);
+        if (session == null) {
+            throw new IllegalArgumentException("Upload not found");
+        }
+        return session;
+    }
+
+    public List<Integer> getReceivedChunks(UploadSession session) {
+        return mediaStore.listChunks(new ObjectId(session.getFileId()));
+    }
+
+    /**
+     * Stores chunk n of an upload. Every chunk but the last must be exactly
+     * the session's chunk size; the body is read straight into the chunk.
+     */
+    public void writeChunk(String uploadId, int n, InputStream body) throws IOException {
+        UploadSession session = getSession(uploadId);
+        if (!UploadSession.UPLOADING.equals(session.getStatus())) {
+            throw new IllegalArgumentException("Upload is already complete");
+        }
+        if (n < 0 || n >= session.getTotalChunks()) {
+            throw new IllegalArgumentException("Chunk index out of range");
+        }
+        long expected = n == session.getTotalChunks() - 1
+                ? session.getTotalSize() - (long) n * session.getChunkSize()
+                : session.getChunkSize();
+        // Read one byte more than expected to detect oversized chunks
+        byte[] data = body.readNBytes((int) expected + 1);
+        if (data.length != expected) {
+            throw new IllegalArgumentException("Chunk " + n + " must be " + expected + " bytes");
+        }
+
+        // Counted as in flight while writing, so complete() cannot publish the file underneath it
+        long claimed = mongoTemplate.updateFirst(
+                new Query(Criteria.where("_id").is(uploadId).and("status").is(UploadSession.UPLOADING)),
+                new Update().inc(WRITERS_FIELD, 1).set("updatedAt", LocalDateTime.now()),
+                UploadSession.class).getModifiedCount();
+        if (claimed == 0) {
+            throw new IllegalArgumentException("Upload is already complete");
+        }
+        try {
+            mediaStore.writeChunk(new ObjectId(session.getFileId()), n, data, data.length);
+        } finally {
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(uploadId)),
+                    new Update().inc(WRITERS_FIELD, -1), UploadSession.class);
+        }
+    }
+
+    /**
+     * Checks that every chunk arrived and publishes the file. Returns the
+     * media id, which is an existing file's id if the same video was
+     * already stored.
+     */
+    public String complete(String uploadId) throws IOException {
+        // Only claimed while no chunk write is in flight; later writes see the status and stop
+        UploadSession session = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(uploadId).and("status").is(UploadSession.UPLOADING)
+                        .orOperator(Criteria.where(WRITERS_FIELD).exists(false), Criteria.where(WRITERS_FIELD).lte(0))),
+                new Update().set("status", COMPLETING).set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                UploadSession.class);
+        if (session == null) {
+            UploadSession existing = getSession(uploadId);
+            if (UploadSession.COMPLETE.equals(existing.getStatus())) {
+                return existing.getFileId();
+            }
+            if (UploadSession.UPLOADING.equals(existing.getStatus())) {
+                throw new IllegalArgumentException("Chunks are still being written, retry once they finish");
+            }
+            throw new IllegalArgumentException("Upload is being completed");
+        }
+
+        try {
+            ObjectId fileId = new ObjectId(session.getFileId());
+            Mp4BoxParser parser = new Mp4BoxParser();
+            String digest = verifyChunks(session, fileId, parser);
+            return publish(session, fileId, digest, checkDuration(parser.finish()));
+        } catch (IOException | RuntimeException e) {
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(uploadId)),
+                    new Update().set("status", UploadSession.UPLOADING), UploadSession.class);
+            throw e;
+        }
+    }
+
+    /**
+     * Stores a video sent as an ordinary multipart request in a single pass
+     * over the body: the type is sniffed from the first chunk, and the bytes
+     * are hashed and written to GridFS chunks as they arrive, never spooled.
+     * The userId field must precede the file part. The result can be claimed
+     * like a completed resumable upload.
+     */
+    public UploadSession ingest(String contentTypeHeader, InputStream body) throws IOException {
+        MultipartStreamReader reader = new MultipartStreamReader(body,
+                MultipartStreamReader.boundaryOf(contentTypeHeader));
+        String userId = null;
+        MultipartStreamReader.Part part;
+        while ((part = reader.nextPart()) != null) {
+            if (part.getFilename() == null) {
+                if ("userId".equals(part.getName())) {
+                    userId = part.readText(MAX_FIELD_BYTES);
+                }
+                continue;
+            }
+            if (userId == null || userId.isEmpty()) {
+                throw new IllegalArgumentException("User ID must be sent before the file");
+            }
+            return ingestFile(userId, part.getFilename(), part.getInputStream());
+        }
+        throw new IllegalArgumentException("No file in request");
+    }
+
+    /**
+     * Hands a completed upload over to a post or tutorial. The upload's
+     * reference to the file becomes the owner's, so each upload can be
+     * claimed once, by the user who uploaded it.
+     */
+    public String claimVideo(String videoId, String userId, long maxVideoBytes) {
+        return claimVideo(videoId, userId, maxVideoBytes, maxDurationSeconds);
+    }
+
+    public String claimVideo(String videoId, String userId, long maxVideoBytes, double maxVideoSeconds) {
+        UploadSession session = mongoTemplate.findAndRemove(new Query(Criteria.where("fileId").is(videoId)
+                        .and("userId").is(userId)
+                        .and("status").is(UploadSession.COMPLETE)
+                        .and("totalSize").lte(maxVideoBytes)
+                        .and("duration").lte(maxVideoSeconds)),
+                UploadSession.class);
+        if (session == null) {
+            throw new IllegalArgumentException("Video upload not found, too large or too long");
+        }
+        return session.getFileId();
+    }
+
+    @Scheduled(fixedDelayString = "${media.uploads.cleanup-interval-ms:3600000}",
+            initialDelayString = "${media.uploads.cleanup-interval-ms:3600000}")
+    public void removeExpiredSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(sessionTtl);
+        Query expired = new Query(Criteria.where("updatedAt").lt(cutoff));
+        expired.fields().include("_id", "status");
+        try {
+            for (UploadSession candidate : mongoTemplate.find(expired, UploadSession.class)) {
+                // Remove the session first so a concurrent claim or chunk cannot use it
+                UploadSession session = mongoTemplate.findAndRemove(new Query(Criteria.where("_id")
+                        .is(candidate.getId()).and("updatedAt").lt(cutoff)), UploadSession.class);
+                if (session == null) {
+                    continue;
+                }
+                ObjectId fileId = new ObjectId(session.getFileId());
+                if (UploadSession.COMPLETE.equals(session.getStatus())) {
+                    mediaBlobService.release(fileId);
+                } else {
+                    mediaStore.delete(fileId);
+                }
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to remove expired upload sessions: " + e.getMessage());
+        }
+    }
+
+    private UploadSession ingestFile(String userId, String filename, InputStream in) throws IOException {
+        byte[] buffer = new byte[chunkSize];
+        int filled = in.readNBytes(buffer, 0, chunkSize);
+        if (filled == 0) {
+            throw new IllegalArgumentException("File is empty");
+        }
+        // Trust the leading bytes rather than the client's declared type
+        String contentType = tika.detect(new ByteArrayInputStream(buffer, 0, filled), filename);
+        if (!ALLOWED_VIDEO_TYPES.contains(contentType)) {
+            throw new IllegalArgumentException("Only MP4 and QuickTime videos are supported");
+        }
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setUserId(userId);
+        session.setFilename(filename.isEmpty() ? "media_video" : filename);
+        session.setContentType(contentType);
+        session.setChunkSize(chunkSize);
+        session.setFileId(new ObjectId().toHexString());
+        // Recorded up front so an interrupted ingest is cleaned up like an abandoned upload
+        session.setStatus(COMPLETING);
+        session.setCreatedAt(LocalDateTime.now());
+        session.setUpdatedAt(session.getCreatedAt());
+        mongoTemplate.insert(session);
+
+        ObjectId fileId = new ObjectId(session.getFileId());
+        MessageDigest digest = MediaBlobService.newDigest();
+        Mp4BoxParser parser = new Mp4BoxParser();
+        long total = 0;
+        int n = 0;
+        try {
+            while (filled > 0) {
+                total += filled;
+                if (total > maxBytes) {
+                    throw new IllegalArgumentException(
+                            "Video size must be less than " + maxBytes / (1024 * 1024) + "MB");
+                }
+                // The header usually comes first, so a long video is refused before most of it is stored
+                parser.write(buffer, 0, filled);
+                if (parser.isComplete()) {
+                    checkDuration(parser.finish());
+                }
+                digest.update(buffer, 0, filled);
+                // Stores copy or encode the chunk before returning, so the buffer can be refilled
+                mediaStore.writeChunk(fileId, n, buffer, filled);
+                n++;
+                filled = in.readNBytes(buffer, 0, chunkSize);
+            }
+            session.setTotalSize(total);
+            session.setTotalChunks(n);
+            Mp4BoxParser.VideoInfo info = checkDuration(parser.finish());
+            session.setDuration(info.getDurationSeconds());
+            session.setFileId(publish(session, fileId, HexFormat.of().formatHex(digest.digest()), info));
+            session.setStatus(UploadSession.COMPLETE);
+            return session;
+        } catch (IOException | RuntimeException e) {
+            mediaStore.delete(fileId);
+            mongoTemplate.remove(session);
+            throw e;
+        }
+    }
+
+    /**
+     * Publishes fully written chunks, registers the content for
+     * deduplication and marks the session complete.
+     */
+    private String publish(UploadSession session, ObjectId fileId, String digest, Mp4BoxParser.VideoInfo info)
+            throws IOException {
+        // Publishing replaces the entry, so a retry after a failed completion is safe
+        mediaStore.publish(fileId, session.getFilename(), session.getTotalSize(), session.getChunkSize(),
+                info.appendTo(new Document("type", "video")
+                        .append("contentType", session.getContentType())
+                        .append("sha256", digest)));
+
+        ObjectId mediaId = mediaBlobService.adopt(fileId, digest, session.getTotalSize());
+        videoFaststartService.rewriteAsync(mediaId);
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(session.getId())),
+                new Update()
+                        .set("status", UploadSession.COMPLETE)
+                        .set("fileId", mediaId.toHexString())
+                        .set("totalSize", session.getTotalSize())
+                        .set("totalChunks", session.getTotalChunks())
+                        .set("duration", info.getDurationSeconds())
+                        .set("updatedAt", LocalDateTime.now()),
+                UploadSession.class);
+        return mediaId.toHexString();
+    }
+
+    private Mp4BoxParser.VideoInfo checkDuration(Mp4BoxParser.VideoInfo info) {
+        if (info.getDurationSeconds() > maxDurationSeconds) {
+            throw new IllegalArgumentException("Video must be at most " + (long) maxDurationSeconds + " seconds");
+        }
+        return info;
+    }
+
+    /**
+     * Reads the chunks back in order into the digest and the header parser.
+     */
+    private String verifyChunks(UploadSession session, ObjectId fileId, Mp4BoxParser parser) {
+        MessageDigest digest = MediaBlobService.newDigest();
+        long length;
+        try (OutputStream sink = new DigestOutputStream(parser, digest)) {
+            length = mediaStore.readChunks(fileId, session.getTotalChunks(), sink);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Upload incomplete: " + e.getMessage());
+        }
+        if (length != session.getTotalSize()) {
+            throw new IllegalArgumentException("Upload incomplete: expected " + session.getTotalSize() + " bytes");
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -2,6 +2,7 @@ package com.example.backend.service;
 
 import com.example.backend.model.Message;
 import com.example.backend.model.User;
+import com.example.backend.model.UserSummary;
 import com.example.backend.repository.MessageRepository;
 import com.example.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +25,9 @@ public class MessageService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserSummaryService userSummaryService;
+
     public Message createMessage(String sellerId, String buyerId, String productId, String content) {
         Message message = new Message();
         message.setSellerId(sellerId);
@@ -121,6 +125,43 @@ public class MessageService {
         return enrichMessagesWithUserNames(messages);
     }
 
+    /**
+     * Cursor over a user's messages, newest first. The caller must close it.
+     */
+    public Stream<Message> streamUserMessages(String userId) {
+        if (userId == null || userId.trim().isEmpty()) {
+            throw new IllegalArgumentException("User ID cannot be null or empty");
+        }
+        return messageRepository.streamByBuyerIdOrSellerIdOrderByCreatedAtDesc(userId.trim(), userId.trim());
+    }
+
+    /**
+     * Cursor over everything a user sent or received, newest first. The caller must close it.
+     */
+    public Stream<Message> streamMessageHistory(String userId) {
+        return messageRepository.streamMessageHistory(userId);
+    }
+
+    /**
+     * Fills in sender and receiver names for one batch of a streamed result
+     * using the shared user summary cache.
+     */
+    public List<Message> enrichMessageBatch(List<Message> messages) {
+        Set<String> userIds = messages.stream()
+            .flatMap(m -> Stream.of(m.getSenderId(), m.getReceiverId()))
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        Map<String, UserSummary> users = userSummaryService.getSummaries(userIds);
+
+        for (Message message : messages) {
+            UserSummary sender = users.get(message.getSenderId());
+            UserSummary receiver = users.get(message.getReceiverId());
+            message.setSenderName(sender != null ? sender.getFullName() : "Unknown User");
+            message.setReceiverName(receiver != null ? receiver.getFullName() : "Unknown User");
+        }
+        return messages;
+    }
+
     public List<Message> getGroupedConversations(String userId) {
         if (userId == null || userId.trim().isEmpty()) {
             throw new IllegalArgumentException("User ID cannot be null or empty");
@@ -0,0 +1,266 @@
+package com.example.backend.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import org.bson.Document;
+
+/**
+ * Reads the duration and frame size of an MP4 or QuickTime video from its
+ * ISO-BMFF boxes while the bytes stream past. Bytes are written to it like
+ * any OutputStream; only the moov box is buffered, everything else is
+ * counted and dropped. For files with the moov box up front the result is
+ * known after the first few kilobytes, so a video can be rejected before
+ * most of it is stored. Malformed input raises IllegalArgumentException.
+ */
+class Mp4BoxParser extends OutputStream {
+    static final int MAX_MOVIE_BOX_BYTES = 16 * 1024 * 1024;
+    // QuickTime files may start without ftyp
+    private static final Set<String> LEADING_BOXES = Set.of("ftyp", "moov", "mdat", "free", "skip", "wide", "pnot");
+
+    private final byte[] header = new byte[16];
+    private int headerFilled;
+    private boolean firstBox = true;
+    private long skipRemaining;
+    private boolean skipToEnd;
+    private ByteArrayOutputStream movie;
+    private long movieRemaining;
+    private VideoInfo info;
+
+    /**
+     * Parses the start of a stream, skipping over boxes instead of reading
+     * them where the stream allows it.
+     */
+    static VideoInfo read(InputStream in) throws IOException {
+        Mp4BoxParser parser = new Mp4BoxParser();
+        byte[] buffer = new byte[8192];
+        while (!parser.isComplete() && !parser.skipToEnd) {
+            if (parser.skipRemaining > 0) {
+                long skipped = in.skip(parser.skipRemaining);
+                if (skipped > 0) {
+                    parser.skipRemaining -= skipped;
+                    continue;
+                }
+            }
+            int read = in.read(buffer);
+            if (read < 0) {
+                break;
+            }
+            parser.write(buffer, 0, read);
+        }
+        return parser.finish();
+    }
+
+    boolean isComplete() {
+        return info != null;
+    }
+
+    /**
+     * Returns the parsed values once the whole stream has been written.
+     */
+    VideoInfo finish() {
+        if (info == null) {
+            throw new IllegalArgumentException(firstBox ? "Video is empty" : "Video has no movie header");
+        }
+        return info;
+    }
+
+    @Override
+    public void write(int b) {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        while (len > 0 && info == null && !skipToEnd) {
+            int n;
+            if (skipRemaining > 0) {
+                n = (int) Math.min(skipRemaining, len);
+                skipRemaining -= n;
+            } else if (movie != null) {
+                n = (int) Math.min(movieRemaining, len);
+                movie.write(b, off, n);
+                movieRemaining -= n;
+                if (movieRemaining == 0) {
+                    info = parseMovie(ByteBuffer.wrap(movie.toByteArray()));
+                    movie = null;
+                }
+            } else {
+                n = Math.min(headerLength() - headerFilled, len);
+                System.arraycopy(b, off, header, headerFilled, n);
+                headerFilled += n;
+                if (headerFilled == headerLength()) {
+                    startBox();
+                }
+            }
+            off += n;
+            len -= n;
+        }
+    }
+
+    private int headerLength() {
+        // A 32-bit size of 1 means a 64-bit size follows the type
+        return headerFilled >= 8 && ByteBuffer.wrap(header).getInt(0) == 1 ? 16 : 8;
+    }
+
+    private void startBox() {
+        ByteBuffer buffer = ByteBuffer.wrap(header);
+        int headerLength = headerLength();
+        long size = headerLength == 16 ? buffer.getLong(8) : buffer.getInt(0) & 0xffffffffL;
+        String type = new String(header, 4, 4, StandardCharsets.ISO_8859_1);
+        headerFilled = 0;
+
+        if (firstBox && !LEADING_BOXES.contains(type)) {
+            throw new IllegalArgumentException("Not an MP4 or QuickTime video");
+        }
+        firstBox = false;
+        if (size == 0) {
+            // The box runs to the end of the file, so nothing after it can be read
+            if ("moov".equals(type)) {
+                throw new IllegalArgumentException("Unsupported movie header layout");
+            }
+            skipToEnd = true;
+            return;
+        }
+        if (size < headerLength) {
+            throw new IllegalArgumentException("Malformed video box " + type);
+        }
+        long bodyLength = size - headerLength;
+        if ("moov".equals(type)) {
+            if (bodyLength > MAX_MOVIE_BOX_BYTES) {
+                throw new IllegalArgumentException("Video movie header is too large");
+            }
+            movie = new ByteArrayOutputStream((int) bodyLength);
+            movieRemaining = bodyLength;
+            if (bodyLength == 0) {
+                info = parseMovie(ByteBuffer.allocate(0));
+            }
+        } else {
+            skipRemaining = bodyLength;
+        }
+    }
+
+    private static VideoInfo parseMovie(ByteBuffer moov) {
+        long timescale = 0;
+        long duration = 0;
+        long fragmentDuration = 0;
+        int width = 0;
+        int height = 0;
+        try {
+            for (Box box = nextBox(moov); box != null; box = nextBox(moov)) {
+                ByteBuffer body = box.body();
+                if ("mvhd".equals(box.type())) {
+                    boolean wide = body.get(0) == 1;
+                    timescale = body.getInt(wide ? 20 : 12) & 0xffffffffL;
+                    duration = wide ? body.getLong(24) : body.getInt(16) & 0xffffffffL;
+                    if (!wide && duration == 0xffffffffL) {
+                        duration = 0;
+                    }
+                } else if ("mvex".equals(box.type())) {
+                    for (Box child = nextBox(body); child != null; child = nextBox(body)) {
+                        if ("mehd".equals(child.type())) {
+                            ByteBuffer mehd = child.body();
+                            fragmentDuration = mehd.get(0) == 1 ? mehd.getLong(4) : mehd.getInt(4) & 0xffffffffL;
+                        }
+                    }
+                } else if ("trak".equals(box.type())) {
+                    for (Box child = nextBox(body); child != null; child = nextBox(body)) {
+                        if ("tkhd".equals(child.type())) {
+                            // Width and height are 16.16 fixed point after the matrix
+                            ByteBuffer tkhd = child.body();
+                            int offset = tkhd.get(0) == 1 ? 88 : 76;
+                            int trackWidth = tkhd.getInt(offset) >>> 16;
+                            int trackHeight = tkhd.getInt(offset + 4) >>> 16;
+                            // Audio tracks have no size; keep the largest picture
+                            if ((long) trackWidth * trackHeight > (long) width * height) {
+                                width = trackWidth;
+                                height = trackHeight;
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed video movie header");
+        }
+
+        if (timescale == 0) {
+            throw new IllegalArgumentException("Video has no movie header");
+        }
+        if (duration == 0) {
+            duration = fragmentDuration;
+        }
+        if (duration == 0) {
+            throw new IllegalArgumentException("Video duration is unknown");
+        }
+        return new VideoInfo((double) duration / timescale, width, height);
+    }
+
+    /**
+     * Returns the next child box and advances past it, or null at the end of
+     * the parent.
+     */
+    static Box nextBox(ByteBuffer parent) {
+        if (parent.remaining() < 8) {
+            return null;
+        }
+        int start = parent.position();
+        int headerLength = 8;
+        long size = parent.getInt(start) & 0xffffffffL;
+        if (size == 1) {
+            headerLength = 16;
+            size = parent.getLong(start + 8);
+        } else if (size == 0) {
+            size = parent.remaining();
+        }
+        if (size < headerLength || size > parent.remaining()) {
+            throw new IllegalArgumentException("Malformed video movie header");
+        }
+        byte[] type = new byte[4];
+        parent.get(start + 4, type);
+        parent.position(start + (int) size);
+        return new Box(new String(type, StandardCharsets.ISO_8859_1),
+                parent.slice(start + headerLength, (int) size - headerLength));
+    }
+
+    record Box(String type, ByteBuffer body) {
+    }
+
+    static class VideoInfo {
+        private final double durationSeconds;
+        private final int width;
+        private final int height;
+
+        VideoInfo(double durationSeconds, int width, int height) {
+            this.durationSeconds = durationSeconds;
+            this.width = width;
+            this.height = height;
+        }
+
+        double getDurationSeconds() {
+            return durationSeconds;
+        }
+
+        int getWidth() {
+            return width;
+        }
+
+        int getHeight() {
+            return height;
+        }
+
+        /**
+         * Adds the values to a media file's metadata.
+         */
+        Document appendTo(Document metadata) {
+            return metadata.append("duration", durationSeconds)
+                    .append("width", width)
+                    .append("height", height);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.backend.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Minimal streaming parser for multipart/form-data bodies. Parts are handed
+ * out one at a time as streams over the request body, so file contents pass
+ * through a small fixed buffer instead of being spooled to memory or disk.
+ * A part's stream must be used before moving on; unread content is skipped.
+ */
+class MultipartStreamReader {
+    private static final int BUFFER_SIZE = 16384;
+    private static final int MAX_HEADER_BYTES = 8192;
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private PartInputStream current;
+    private boolean finished;
+
+    MultipartStreamReader(InputStream in, String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buffer = new byte[BUFFER_SIZE + delimiter.length];
+        // The first boundary has no preceding line break; pretend it does so one delimiter fits all
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        limit = 2;
+        current = new PartInputStream();
+    }
+
+    static String boundaryOf(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/form-data")) {
+            throw new IllegalArgumentException("Expected a multipart/form-data request");
+        }
+        for (String param : contentType.split(";")) {
+            String trimmed = param.trim();
+            if (trimmed.toLowerCase(Locale.ROOT).startsWith("boundary=")) {
+                String boundary = trimmed.substring("boundary=".length());
+                if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+                    boundary = boundary.substring(1, boundary.length() - 1);
+                }
+                if (!boundary.isEmpty() && boundary.length() <= 70) {
+                    return boundary;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Missing multipart boundary");
+    }
+
+    /**
+     * Advances to the next part, or returns null after the closing boundary.
+     */
+    Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        // Skip the preamble or whatever the caller left of the previous part
+        current.skipRest();
+
+        ensure(2);
+        if (limit - pos < 2) {
+            throw new IOException("Unexpected end of multipart body");
+        }
+        if (buffer[pos] == '-' && buffer[pos + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        if (buffer[pos] != '\r' || buffer[pos + 1] != '\n') {
+            throw new IOException("Malformed multipart boundary");
+        }
+        pos += 2;
+
+        Map<String, String> headers = readHeaders();
+        current = new PartInputStream();
+        return new Part(headers, current);
+    }
+
+    private Map<String, String> readHeaders() throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int total = 0;
+        while (true) {
+            ensure(1);
+            if (pos >= limit) {
+                throw new IOException("Unexpected end of part headers");
+            }
+            byte b = buffer[pos++];
+            if (++total > MAX_HEADER_BYTES) {
+                throw new IOException("Part headers too large");
+            }
+            if (b != '\n') {
+                line.write(b);
+                continue;
+            }
+            String text = line.toString(StandardCharsets.UTF_8).trim();
+            line.reset();
+            if (text.isEmpty()) {
+                return headers;
+            }
+            int colon = text.indexOf(':');
+            if (colon > 0) {
+                headers.put(text.substring(0, colon).trim().toLowerCase(Locale.ROOT), text.substring(colon + 1).trim());
+            }
+        }
+    }
+
+    /**
+     * Makes at least n bytes available from pos unless the body ends first.
+     */
+    private void ensure(int n) throws IOException {
+        if (limit - pos >= n || eof) {
+            return;
+        }
+        System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+        limit -= pos;
+        pos = 0;
+        while (limit < n && !eof) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+    }
+
+    private int indexOfDelimiter() {
+        int last = limit - delimiter.length;
+        outer:
+        for (int i = pos; i <= last; i++) {
+            for (int j = 0; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private class PartInputStream extends InputStream {
+        private boolean ended;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] target, int off, int len) throws IOException {
+            if (ended) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            ensure(delimiter.length);
+            int found = indexOfDelimiter();
+            int available;
+            if (found == pos) {
+                pos += delimiter.length;
+                ended = true;
+                return -1;
+            } else if (found >= 0) {
+                available = found - pos;
+            } else {
+                // Keep a possible partial delimiter at the end of the buffer for the next read
+                available = limit - pos - (delimiter.length - 1);
+                if (available <= 0) {
+                    throw new IOException("Unexpected end of multipart body");
+                }
+            }
+            int count = Math.min(len, available);
+            System.arraycopy(buffer, pos, target, off, count);
+            pos += count;
+            return count;
+        }
+
+        void skipRest() throws IOException {
+            byte[] discard = new byte[BUFFER_SIZE];
+            while (read(discard, 0, discard.length) >= 0) {
+                // Discard until the next boundary
+            }
+        }
+    }
+
+    static class Part {
+        private final Map<String, String> headers;
+        private final InputStream content;
+
+        Part(Map<String, String> headers, InputStream content) {
+            this.headers = headers;
+            this.content = content;
+        }
+
+        String getName() {
+            return dispositionParam("name");
+        }
+
+        String getFilename() {
+            return dispositionParam("filename");
+        }
+
+        String getContentType() {
+            return headers.get("content-type");
+        }
+
+        InputStream getInputStream() {
+            return content;
+        }
+
+        String readText(int maxBytes) throws IOException {
+            byte[] bytes = content.readNBytes(maxBytes + 1);
+            if (bytes.length > maxBytes) {
+                throw new IllegalArgumentException("Field " + getName() + " is too long");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private String dispositionParam(String param) {
+            String disposition = headers.get("content-disposition");
+            if (disposition == null) {
+                return null;
+            }
+            for (String token : disposition.split(";")) {
+                String trimmed = token.trim();
+                int equals = trimmed.indexOf('=');
+                if (equals > 0 && trimmed.substring(0, equals).trim().equalsIgnoreCase(param)) {
+                    String value = trimmed.substring(equals + 1).trim();
+                    if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+                        value = value.substring(1, value.length() - 1);
+                    }
+                    return value;
+                }
+            }
+            return null;
+        }
+    }
+}
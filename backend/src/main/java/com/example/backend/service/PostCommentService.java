@@ -0,0 +1,212 @@
+package com.example.backend.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.model.Comment;
+import com.example.backend.model.CursorPage;
+import com.example.backend.model.FeedCursor;
+import com.example.backend.model.Post;
+import com.example.backend.model.UserSummary;
+import com.example.backend.repository.CommentRepository;
+import com.mongodb.client.result.DeleteResult;
+
+/**
+ * Comments live in their own collection. Each post only keeps a comment
+ * count and its newest few comments so feed reads stay small.
+ */
+@Service
+public class PostCommentService {
+    public static final int LATEST_COMMENTS_LIMIT = 3;
+    private static final int MAX_COMMENT_PAGE_SIZE = 100;
+    private static final int MAX_REFRESH_ATTEMPTS = 5;
+
+    private final CommentRepository commentRepository;
+    private final MongoTemplate mongoTemplate;
+    private final UserSummaryService userSummaryService;
+
+    public PostCommentService(
+            CommentRepository commentRepository,
+            MongoTemplate mongoTemplate,
+            UserSummaryService userSummaryService) {
+        this.commentRepository = commentRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.userSummaryService = userSummaryService;
+    }
+
+    public CursorPage<Comment> getComments(String postId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_COMMENT_PAGE_SIZE));
+        Query query = new Query(Criteria.where("postId").is(postId));
+        if (cursor != null && !cursor.isEmpty()) {
+            FeedCursor position = FeedCursor.decode(cursor);
+            query.addCriteria(position.olderThan("_id", position.getObjectId()));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id")));
+        query.limit(pageSize + 1);
+
+        List<Comment> comments = mongoTemplate.find(query, Comment.class);
+        String nextCursor = null;
+        if (comments.size() > pageSize) {
+            comments = comments.subList(0, pageSize);
+            Comment last = comments.get(pageSize - 1);
+            nextCursor = new FeedCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(comments, nextCursor);
+    }
+
+    public Post addComment(String postId, String userId, String content) {
+        if (!mongoTemplate.exists(new Query(Criteria.where("_id").is(postId)), Post.class)) {
+            throw new IllegalArgumentException("Post not found");
+        }
+        UserSummary author = userSummaryService.getSummary(userId);
+        if (author == null) {
+            throw new IllegalArgumentException("User not found");
+        }
+
+        Comment comment = new Comment();
+        comment.setPostId(postId);
+        comment.setUserId(userId);
+        comment.setAuthorName(author.getFullName());
+        comment.setContent(content);
+        comment.setCreatedAt(LocalDateTime.now());
+        comment = commentRepository.save(comment);
+
+        Update update = new Update()
+                .inc("commentCount", 1)
+                .push("latestComments").slice(-LATEST_COMMENTS_LIMIT).each(comment);
+        Post post = mongoTemplate.findAndModify(new Query(Criteria.where("_id").is(postId)), update,
+                FindAndModifyOptions.options().returnNew(true), Post.class);
+        if (post == null) {
+            // The post was deleted while the comment was being written
+            commentRepository.deleteById(comment.getId());
+            throw new IllegalArgumentException("Post not found");
+        }
+        return post;
+    }
+
+    public Post updateComment(String postId, String commentId, String userId, String content) {
+        Comment comment = getComment(postId, commentId);
+        if (!Objects.equals(comment.getUserId(), userId)) {
+            throw new IllegalArgumentException("You can only edit your own comments");
+        }
+
+        comment.setContent(content);
+        commentRepository.save(comment);
+        return refreshLatestComments(postId);
+    }
+
+    public Post deleteComment(String postId, String commentId, String userId) {
+        Comment comment = getComment(postId, commentId);
+        String postOwnerId = getPostOwnerId(postId);
+
+        if (!userId.equals(postOwnerId) && !userId.equals(comment.getUserId())) {
+            throw new IllegalArgumentException("You can only delete your own comments or comments on your posts");
+        }
+
+        // Only the request that actually removed the comment adjusts the count
+        DeleteResult removed = mongoTemplate.remove(
+                new Query(Criteria.where("_id").is(commentId).and("postId").is(postId)), Comment.class);
+        if (removed.getDeletedCount() == 0) {
+            throw new IllegalArgumentException("Comment not found");
+        }
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(postId)),
+                new Update().inc("commentCount", -1), Post.class);
+        return refreshLatestComments(postId);
+    }
+
+    public Post deleteAllComments(String postId) {
+        commentRepository.deleteByPostId(postId);
+        Update update = new Update()
+                .set("latestComments", Collections.emptyList())
+                .set("commentCount", 0);
+        Post post = mongoTemplate.findAndModify(new Query(Criteria.where("_id").is(postId)), update,
+                FindAndModifyOptions.options().returnNew(true), Post.class);
+        if (post == null) {
+            throw new IllegalArgumentException("Post not found");
+        }
+        return post;
+    }
+
+    public void deleteCommentsForPost(String postId) {
+        commentRepository.deleteByPostId(postId);
+    }
+
+    public boolean canModifyComment(String postId, String commentId, String userId) {
+        // Only allow comment author to modify
+        return userId.equals(getComment(postId, commentId).getUserId());
+    }
+
+    private Comment getComment(String postId, String commentId) {
+        Comment comment = commentRepository.findById(commentId)
+                .orElseThrow(() -> new IllegalArgumentException("Comment not found"));
+        if (!postId.equals(comment.getPostId())) {
+            throw new IllegalArgumentException("Comment not found");
+        }
+        return comment;
+    }
+
+    private String getPostOwnerId(String postId) {
+        Query query = new Query(Criteria.where("_id").is(postId));
+        query.fields().include("userId");
+        Post post = mongoTemplate.findOne(query, Post.class);
+        if (post == null) {
+            throw new IllegalArgumentException("Post not found");
+        }
+        return post.getUserId();
+    }
+
+    /**
+     * Rebuilds the post's latestComments preview from the comments collection.
+     * The write only lands if the comment count still matches the one read
+     * before the comments, so a comment added or deleted in between makes
+     * this retry instead of overwriting the newer preview.
+     */
+    private Post refreshLatestComments(String postId) {
+        for (int attempt = 0; attempt < MAX_REFRESH_ATTEMPTS; attempt++) {
+            int commentCount = getCommentCount(postId);
+            // Re-read the newest comments from the (postId, createdAt) index
+            List<Comment> latest = new ArrayList<>(commentRepository.findByPostIdOrderByCreatedAtDescIdDesc(
+                    postId, PageRequest.of(0, LATEST_COMMENTS_LIMIT)));
+            Collections.reverse(latest);
+
+            Criteria unchanged = Criteria.where("_id").is(postId);
+            // Posts that never had a comment may not have the field yet
+            unchanged = commentCount == 0
+                    ? unchanged.and("commentCount").in(0, null)
+                    : unchanged.and("commentCount").is(commentCount);
+            Post post = mongoTemplate.findAndModify(new Query(unchanged), new Update().set("latestComments", latest),
+                    FindAndModifyOptions.options().returnNew(true), Post.class);
+            if (post != null) {
+                return post;
+            }
+        }
+        // Still contended; the writer that keeps moving the count refreshes the preview itself
+        Post post = mongoTemplate.findById(postId, Post.class);
+        if (post == null) {
+            throw new IllegalArgumentException("Post not found");
+        }
+        return post;
+    }
+
+    private int getCommentCount(String postId) {
+        Query query = new Query(Criteria.where("_id").is(postId));
+        query.fields().include("commentCount");
+        Post post = mongoTemplate.findOne(query, Post.class);
+        if (post == null) {
+            throw new IllegalArgumentException("Post not found");
+        }
+        return post.getCommentCount();
+    }
+}
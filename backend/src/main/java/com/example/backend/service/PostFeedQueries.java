@@ -0,0 +1,39 @@
+package com.example.backend.service;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * Post queries for list views. Only the fields a feed card renders are read,
+ * together with the stored counters; likedByUsers and userReactions are cut
+ * down to the viewer's own entry, so payload size does not grow with likes.
+ */
+final class PostFeedQueries {
+    private static final List<String> FEED_FIELDS = List.of(
+            "userId", "content", "videoUrl", "imageUrls", "mediaIds", "likeCount",
+            "latestComments", "commentCount", "createdAt", "reactionCounts");
+
+    private PostFeedQueries() {
+    }
+
+    /**
+     * Returns an empty query carrying the feed projection; callers add
+     * criteria, sort and limit as usual. A viewer id that is not an ObjectId
+     * is read as anonymous, since it would otherwise become part of a field
+     * name.
+     */
+    static Query forViewer(String viewerId) {
+        Document fields = new Document();
+        FEED_FIELDS.forEach(field -> fields.put(field, 1));
+        if (viewerId != null && ObjectId.isValid(viewerId)) {
+            // At most one element comes back, and only if the viewer liked the post
+            fields.put("likedByUsers", new Document("$elemMatch", new Document("$eq", viewerId)));
+            fields.put("userReactions." + viewerId, 1);
+        }
+        return new BasicQuery(new Document(), fields);
+    }
+}
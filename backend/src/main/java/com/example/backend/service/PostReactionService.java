@@ -0,0 +1,103 @@
+package com.example.backend.service;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.model.Post;
+import com.example.backend.model.PostResponse;
+import com.example.backend.model.Reaction;
+
+/**
+ * Applies reactions as O(1) conditional updates: the user's entry in
+ * userReactions is swapped and the affected reactionCounts are adjusted with
+ * $inc in the same findAndModify, guarded on the reaction the user had before.
+ */
+@Service
+public class PostReactionService {
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final MongoTemplate mongoTemplate;
+
+    public PostReactionService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public PostResponse react(String postId, String userId, String reactionType) {
+        Reaction requested = parseReaction(reactionType);
+        String reactionPath = userReactionPath(userId);
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Reaction previous = findCurrentReaction(postId, reactionPath);
+            // Reacting with the same type again removes the reaction
+            Reaction next = previous == requested ? null : requested;
+
+            Criteria guard = Criteria.where("_id").is(postId);
+            guard = previous != null
+                    ? guard.and(reactionPath).is(previous.name())
+                    : guard.and(reactionPath).exists(false);
+
+            Update update = new Update();
+            if (next != null) {
+                update.set(reactionPath, next.name());
+                update.inc("reactionCounts." + next.name(), 1);
+            } else {
+                update.unset(reactionPath);
+            }
+            if (previous != null) {
+                update.inc("reactionCounts." + previous.name(), -1);
+            }
+
+            Query query = new Query(guard);
+            query.fields().include("userId", "reactionCounts");
+            Post updated = mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().returnNew(true), Post.class);
+            if (updated != null) {
+                PostResponse response = new PostResponse();
+                response.setId(updated.getId());
+                response.setUserId(updated.getUserId());
+                response.setUserReaction(next);
+                response.setReactionCounts(updated.getReactionCounts());
+                return response;
+            }
+            // The user's reaction changed concurrently; re-read and retry
+        }
+        throw new IllegalStateException("Could not apply reaction due to concurrent updates");
+    }
+
+    private Reaction findCurrentReaction(String postId, String reactionPath) {
+        Query query = new Query(Criteria.where("_id").is(postId));
+        query.fields().include(reactionPath);
+        Post post = mongoTemplate.findOne(query, Post.class);
+        if (post == null) {
+            throw new IllegalArgumentException("Post not found");
+        }
+        return post.getUserReactions() != null && !post.getUserReactions().isEmpty()
+                ? post.getUserReactions().values().iterator().next()
+                : null;
+    }
+
+    /**
+     * The path of one user's entry in userReactions for a write. The id
+     * becomes part of a field name, so anything other than an ObjectId is
+     * rejected.
+     */
+    static String userReactionPath(String userId) {
+        if (!ObjectId.isValid(userId)) {
+            throw new IllegalArgumentException("Invalid user id");
+        }
+        return "userReactions." + userId;
+    }
+
+    static Reaction parseReaction(String reactionType) {
+        try {
+            return Reaction.valueOf(reactionType.toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid reaction type: must be LIKE or HEART");
+        }
+    }
+}
@@ -1,31 +1,41 @@
 package com.example.backend.service;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.logging.Logger;
 
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.backend.model.Comment;
+import com.example.backend.model.CursorPage;
+import com.example.backend.model.FeedCursor;
+import com.example.backend.model.LikeResult;
 import com.example.backend.model.Post;
 import com.example.backend.model.PostResponse;
-import com.example.backend.model.Reaction;
-import com.example.backend.model.User;
+import com.example.backend.model.UserSummary;
 import com.example.backend.repository.PostRepository;
 import com.example.backend.repository.UserRepository;
-import com.mongodb.client.gridfs.GridFSBucket;
-import com.mongodb.client.gridfs.GridFSBuckets;
-import com.mongodb.client.gridfs.model.GridFSUploadOptions;
 
 @Service
 public class PostService {
@@ -33,57 +43,105 @@ public class PostService {
     private final PostRepository postRepository;
     private final UserRepository userRepository;
     private final MongoTemplate mongoTemplate;
-    private final GridFSBucket gridFSBucket;
+    private final UserSummaryService userSummaryService;
+    private final PostReactionService postReactionService;
+    private final PostCommentService postCommentService;
+    private final TimelineService timelineService;
+    private final ResourceVersionService resourceVersionService;
+    private final EngagementBuffer engagementBuffer;
+    private final ImageVariantService imageVariantService;
+    private final VideoFaststartService videoFaststartService;
+    private final MediaBlobService mediaBlobService;
+    private final MediaUploadService mediaUploadService;
+    private final MediaGarbageCollector mediaGarbageCollector;
     private final Logger logger = Logger.getLogger(PostService.class.getName());
 
     private static final int MAX_VIDEO_SIZE_MB = 15; // 15MB
     private static final List<String> ALLOWED_VIDEO_TYPES = List.of("video/mp4", "video/quicktime");
     private static final int MAX_VIDEO_DURATION_SECONDS = 30;
+    private static final int MAX_FEED_PAGE_SIZE = 100;
+    private static final int MAX_LIKE_ATTEMPTS = 3;
 
     @Autowired
     public PostService(
             PostRepository postRepository,
             UserRepository userRepository,
-            MongoTemplate mongoTemplate) {
+            MongoTemplate mongoTemplate,
+            UserSummaryService userSummaryService,
+            PostReactionService postReactionService,
+            PostCommentService postCommentService,
+            TimelineService timelineService,
+            ResourceVersionService resourceVersionService,
+            EngagementBuffer engagementBuffer,
+            ImageVariantService imageVariantService,
+            VideoFaststartService videoFaststartService,
+            MediaBlobService mediaBlobService,
+            MediaUploadService mediaUploadService,
+            MediaGarbageCollector mediaGarbageCollector) {
         this.postRepository = postRepository;
         this.userRepository = userRepository;
         this.mongoTemplate = mongoTemplate;
-        this.gridFSBucket = GridFSBuckets.create(mongoTemplate.getDb(), "media");
+        this.userSummaryService = userSummaryService;
+        this.postReactionService = postReactionService;
+        this.postCommentService = postCommentService;
+        this.timelineService = timelineService;
+        this.resourceVersionService = resourceVersionService;
+        this.engagementBuffer = engagementBuffer;
+        this.imageVariantService = imageVariantService;
+        this.videoFaststartService = videoFaststartService;
+        this.mediaBlobService = mediaBlobService;
+        this.mediaUploadService = mediaUploadService;
+        this.mediaGarbageCollector = mediaGarbageCollector;
     }
 
-    private User getUserDetails(String userId) {
-        return userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+    public String getUserName(String userId) {
+        UserSummary user = userSummaryService.getSummary(userId);
+        if (user == null) {
+            throw new RuntimeException("User not found");
+        }
+        return user.getFullName();
     }
 
-    public String getUserName(String userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        return String.format("%s %s", user.getFirstName(), user.getLastName());
+    public List<PostResponse> convertToPostResponses(List<Post> posts) {
+        // Resolve every distinct author of the batch with one lookup
+        Set<String> authorIds = posts.stream()
+                .map(Post::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, UserSummary> authors = userSummaryService.getSummaries(authorIds);
+        return posts.stream()
+                .map(post -> convertToPostResponse(post, authors.get(post.getUserId())))
+                .collect(Collectors.toList());
     }
 
     private PostResponse convertToPostResponse(Post post) {
+        return convertToPostResponse(post, userSummaryService.getSummary(post.getUserId()));
+    }
+
+    private PostResponse convertToPostResponse(Post post, UserSummary author) {
         PostResponse response = new PostResponse(post);
-        try {
-            User user = getUserDetails(post.getUserId());
-            response.setUserName(user.getFirstName() + " " + user.getLastName());
-            response.setUserProfilePicture(user.getProfilePicture());
-        } catch (Exception e) {
+        if (author != null) {
+            response.setUserName(author.getFullName());
+            response.setUserProfilePicture(author.getProfilePicture());
+        } else {
             response.setUserName("Unknown User");
         }
         response.setLikeCount(post.getLikeCount());
         String currentUserId = getCurrentUserId();
         if (currentUserId != null) {
             response.setIsLiked(post.isLikedByUser(currentUserId));
+            response.setUserReaction(post.getUserReaction(currentUserId));
         }
         response.setReactionCounts(post.getReactionCounts());
+        engagementBuffer.applyTo(response, currentUserId);
         return response;
     }
 
     private String getCurrentUserId() {
         try {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            if (auth != null && auth.isAuthenticated()) {
+            // Anonymous requests are authenticated as "anonymousUser"
+            if (auth != null && auth.isAuthenticated() && ObjectId.isValid(auth.getName())) {
                 return auth.getName();
             }
         } catch (Exception e) {
@@ -92,8 +150,10 @@ public class PostService {
         return null;
     }
 
-    public PostResponse createPost(String userId, String content, List<MultipartFile> images, MultipartFile video) throws IOException {
-        if ((video == null && (images == null || images.isEmpty())) && content.isEmpty()) {
+    public PostResponse createPost(String userId, String content, List<MultipartFile> images, MultipartFile video,
+            String uploadedVideoId) throws IOException {
+        boolean hasUploadedVideo = uploadedVideoId != null && !uploadedVideoId.isEmpty();
+        if ((video == null && !hasUploadedVideo && (images == null || images.isEmpty())) && content.isEmpty()) {
             throw new IllegalArgumentException("Post must have content, images, or a video");
         }
 
@@ -102,18 +162,26 @@ public class PostService {
         post.setContent(content);
         post.setCreatedAt(LocalDateTime.now());
         post.setLikedByUsers(new HashSet<>()); // Initialize empty set instead of using setLikes
+        post.setLikeCount(0);
         post.setUserReactions(new HashMap<>()); // Initialize empty reactions map
         post.setReactionCounts(new HashMap<>()); // Initialize empty reaction counts
-        post.setComments(new ArrayList<>());
+        post.setLatestComments(new ArrayList<>());
+        post.setCommentCount(0);
         List<String> mediaIds = new ArrayList<>();
 
         try {
             // Handle video upload
             if (video != null && !video.isEmpty()) {
-                validateVideo(video);
-                String videoId = saveMedia(video, "video");
+                Mp4BoxParser.VideoInfo videoInfo = validateVideo(video);
+                String videoId = saveMedia(video, "video", videoInfo.appendTo(new org.bson.Document()));
                 mediaIds.add(videoId);
                 post.setVideoUrl("/api/media/" + videoId); // URL for retrieval
+            } else if (hasUploadedVideo) {
+                // Video sent earlier through the resumable upload API
+                String videoId = mediaUploadService.claimVideo(
+                        uploadedVideoId, userId, MAX_VIDEO_SIZE_MB * 1024L * 1024, MAX_VIDEO_DURATION_SECONDS);
+                mediaIds.add(videoId);
+                post.setVideoUrl("/api/media/" + videoId);
             }
 
             // Handle image uploads
@@ -132,13 +200,15 @@ public class PostService {
 
             post.setMediaIds(mediaIds); // Store GridFS IDs
             Post savedPost = postRepository.save(post);
+            timelineService.fanOut(savedPost);
+            resourceVersionService.bump(ResourceVersionService.POSTS);
             return convertToPostResponse(savedPost);
         } catch (IOException e) {
             throw new RuntimeException("Failed to save media: " + e.getMessage());
         }
     }
 
-    private void validateVideo(MultipartFile video) {
+    private Mp4BoxParser.VideoInfo validateVideo(MultipartFile video) throws IOException {
         if (!ALLOWED_VIDEO_TYPES.contains(video.getContentType())) {
             throw new IllegalArgumentException(
                     "Invalid video format. Allowed formats: " + String.join(", ", ALLOWED_VIDEO_TYPES));
@@ -146,38 +216,96 @@ public class PostService {
         if (video.getSize() > MAX_VIDEO_SIZE_MB * 1024 * 1024) {
             throw new IllegalArgumentException("Video size must be less than " + MAX_VIDEO_SIZE_MB + "MB");
         }
-        // Note: Duration validation requires FFmpeg or external library.
-        // For simplicity, assuming frontend enforces 30s limit.
-        // If needed, reintroduce JAVE or use FFmpeg CLI via ProcessBuilder.
+        // Only the box headers are read; the media data is skipped over
+        Mp4BoxParser.VideoInfo info;
+        try (InputStream in = video.getInputStream()) {
+            info = Mp4BoxParser.read(in);
+        }
+        if (info.getDurationSeconds() > MAX_VIDEO_DURATION_SECONDS) {
+            throw new IllegalArgumentException("Video must be at most " + MAX_VIDEO_DURATION_SECONDS + " seconds");
+        }
+        return info;
     }
 
     private String saveMedia(MultipartFile file, String type) throws IOException {
-        GridFSUploadOptions options = new GridFSUploadOptions()
-                .metadata(new org.bson.Document("type", type));
-        ObjectId fileId = gridFSBucket.uploadFromStream(
+        return saveMedia(file, type, new org.bson.Document());
+    }
+
+    private String saveMedia(MultipartFile file, String type, org.bson.Document metadata) throws IOException {
+        if ("image".equals(type)) {
+            imageVariantService.withDimensions(file, metadata);
+        }
+        ObjectId fileId = mediaBlobService.store(
+                file,
                 file.getOriginalFilename() != null ? file.getOriginalFilename() : "media_" + type,
-                file.getInputStream(),
-                options);
+                metadata.append("type", type));
+        if ("image".equals(type)) {
+            imageVariantService.generateAsync(fileId);
+        } else if ("video".equals(type)) {
+            videoFaststartService.rewriteAsync(fileId);
+        }
         return fileId.toHexString();
     }
 
     public List<PostResponse> getAllPosts() {
         try {
-            List<Post> posts = postRepository.findAllByOrderByCreatedAtDesc();
-            return posts.stream()
-                    .map(this::convertToPostResponse)
-                    .collect(Collectors.toList());
+            Query query = PostFeedQueries.forViewer(getCurrentUserId())
+                    .with(Sort.by(Sort.Direction.DESC, "createdAt"));
+            return convertToPostResponses(mongoTemplate.find(query, Post.class));
         } catch (Exception e) {
             logger.warning("Error retrieving posts: " + e.getMessage());
             return new ArrayList<>();
         }
     }
 
+    public CursorPage<PostResponse> getFeedPage(String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_FEED_PAGE_SIZE));
+        Query query = PostFeedQueries.forViewer(getCurrentUserId());
+        if (cursor != null && !cursor.isEmpty()) {
+            FeedCursor position = FeedCursor.decode(cursor);
+            query.addCriteria(position.olderThan("_id", position.getObjectId()));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id")));
+        // Fetch one extra document to know whether another page exists
+        query.limit(pageSize + 1);
+
+        List<Post> posts = mongoTemplate.find(query, Post.class);
+        String nextCursor = null;
+        if (posts.size() > pageSize) {
+            posts = posts.subList(0, pageSize);
+            Post last = posts.get(pageSize - 1);
+            nextCursor = new FeedCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return new CursorPage<>(convertToPostResponses(posts), nextCursor);
+    }
+
+    /**
+     * Opens a cursor over the feed, newest first, starting after the given
+     * position if any. The caller must close the returned stream.
+     */
+    public Stream<Post> streamFeed(String cursor) {
+        Query query = PostFeedQueries.forViewer(getCurrentUserId());
+        if (cursor != null && !cursor.isEmpty()) {
+            FeedCursor position = FeedCursor.decode(cursor);
+            query.addCriteria(position.olderThan("_id", position.getObjectId()));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id")));
+        query.cursorBatchSize(MAX_FEED_PAGE_SIZE);
+        return mongoTemplate.stream(query, Post.class);
+    }
+
+    public CursorPage<PostResponse> getTimeline(String userId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_FEED_PAGE_SIZE));
+        CursorPage<Post> page = timelineService.getTimeline(userId, getCurrentUserId(), cursor, pageSize);
+        return new CursorPage<>(convertToPostResponses(page.getItems()), page.getNextCursor());
+    }
+
     public List<PostResponse> getUserPosts(String userId) {
-        List<Post> posts = postRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        return posts.stream()
-                .map(this::convertToPostResponse)
-                .collect(Collectors.toList());
+        Query query = PostFeedQueries.forViewer(getCurrentUserId())
+                .addCriteria(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt"));
+        return convertToPostResponses(mongoTemplate.find(query, Post.class));
     }
 
     public void deletePost(String postId, String userId) {
@@ -188,18 +316,16 @@ public class PostService {
             throw new IllegalArgumentException("You can only delete your own posts");
         }
 
-        // Delete associated media from GridFS
+        postCommentService.deleteCommentsForPost(postId);
+        postRepository.deleteById(postId);
+        // Media is released in the background once the post is gone
         if (post.getMediaIds() != null) {
-            for (String mediaId : post.getMediaIds()) {
-                try {
-                    gridFSBucket.delete(new ObjectId(mediaId));
-                } catch (Exception e) {
-                    System.err.println("Failed to delete media: " + mediaId);
-                }
-            }
+            // One release per entry; a post may reference the same deduplicated file twice
+            mediaGarbageCollector.enqueueRelease(post.getMediaIds());
         }
-
-        postRepository.deleteById(postId);
+        engagementBuffer.discard(postId);
+        timelineService.removePost(postId);
+        resourceVersionService.bump(ResourceVersionService.POSTS);
     }
 
     public PostResponse updatePost(String postId, String userId, String content, List<MultipartFile> images) {
@@ -210,22 +336,15 @@ public class PostService {
             throw new IllegalArgumentException("You can only update your own posts");
         }
 
-        post.setContent(content);
-        List<String> mediaIds = new ArrayList<>(post.getMediaIds() != null ? post.getMediaIds() : new ArrayList<>());
+        List<String> previousMediaIds = post.getMediaIds() != null ? post.getMediaIds() : new ArrayList<>();
+        List<String> mediaIds = new ArrayList<>(previousMediaIds);
+        List<String> imageIds = new ArrayList<>();
 
         try {
             if (images != null && !images.isEmpty()) {
-                // Delete old media
-                if (!mediaIds.isEmpty()) {
-                    for (String mediaId : mediaIds) {
-                        try {
-                            gridFSBucket.delete(new ObjectId(mediaId));
-                        } catch (Exception e) {
-                            System.err.println("Failed to delete old media: " + mediaId);
-                        }
-                    }
-                    mediaIds.clear();
-                }
+                // New images replace the old ones; the video stays
+                String videoId = post.getVideoUrl() != null ? post.getVideoUrl().replace("/api/media/", "") : null;
+                mediaIds.removeIf(mediaId -> !mediaId.equals(videoId));
 
                 // Save new images
                 for (MultipartFile image : images) {
@@ -233,111 +352,112 @@ public class PostService {
                         throw new IllegalArgumentException("Only image files are supported");
                     }
                     String imageId = saveMedia(image, "image");
-                    mediaIds.add(imageId);
+                    imageIds.add(imageId);
                 }
-                post.setImageUrls(mediaIds.stream()
+                mediaIds.addAll(imageIds);
+                post.setImageUrls(imageIds.stream()
                         .map(id -> "/api/media/" + id)
                         .collect(Collectors.toList()));
             }
 
-            post.setMediaIds(mediaIds);
-            Post updatedPost = postRepository.save(post);
+            // Only the edited fields are written, so engagement updated meanwhile is kept
+            Query replaced = new Query(Criteria.where("_id").is(postId).and("userId").is(userId));
+            replaced.fields().include("mediaIds");
+            Post previous = mongoTemplate.findAndModify(replaced,
+                    new Update().set("content", content)
+                            .set("imageUrls", post.getImageUrls())
+                            .set("mediaIds", mediaIds),
+                    Post.class);
+            if (previous == null) {
+                // Deleted meanwhile; the images saved above are referenced by nothing
+                mediaGarbageCollector.enqueueRelease(imageIds);
+                throw new IllegalArgumentException("Post not found");
+            }
+            Post updatedPost = postRepository.findById(postId)
+                    .orElseThrow(() -> new IllegalArgumentException("Post not found"));
+            // Release what the write actually replaced; each saved image holds a reference of its own
+            List<String> kept = new ArrayList<>(mediaIds);
+            imageIds.forEach(kept::remove);
+            List<String> unused = previous.getMediaIds() != null
+                    ? new ArrayList<>(previous.getMediaIds())
+                    : new ArrayList<>();
+            kept.forEach(unused::remove);
+            mediaGarbageCollector.enqueueRelease(unused);
+            resourceVersionService.bump(ResourceVersionService.POSTS);
             return convertToPostResponse(updatedPost);
         } catch (IOException e) {
             throw new RuntimeException("Failed to update media: " + e.getMessage());
         }
     }
 
-    public PostResponse toggleLike(String postId, String userId) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("Post not found"));
-
-        if (post.getLikedByUsers().contains(userId)) {
-            post.getLikedByUsers().remove(userId);
-        } else {
-            post.getLikedByUsers().add(userId);
+    public LikeResult toggleLike(String postId, String userId) {
+        if (engagementBuffer.isEnabled()) {
+            LikeResult result = engagementBuffer.toggleLike(postId, userId);
+            resourceVersionService.bump(ResourceVersionService.POSTS);
+            return result;
         }
 
-        post = postRepository.save(post);
-        return new PostResponse(post, userId);
+        FindAndModifyOptions options = FindAndModifyOptions.options().returnNew(true);
+
+        // Each update only applies if the user's current state allows it, so
+        // concurrent toggles never lose an update or drift the counter.
+        for (int attempt = 0; attempt < MAX_LIKE_ATTEMPTS; attempt++) {
+            Query likeQuery = new Query(Criteria.where("_id").is(postId).and("likedByUsers").ne(userId)
+                    .and("likeCount").exists(true));
+            likeQuery.fields().include("likeCount");
+            Post liked = mongoTemplate.findAndModify(likeQuery,
+                    new Update().addToSet("likedByUsers", userId).inc("likeCount", 1),
+                    options, Post.class);
+            if (liked != null) {
+                resourceVersionService.bump(ResourceVersionService.POSTS);
+                return new LikeResult(postId, liked.getLikeCount(), true);
+            }
+
+            Query unlikeQuery = new Query(Criteria.where("_id").is(postId).and("likedByUsers").is(userId)
+                    .and("likeCount").exists(true));
+            unlikeQuery.fields().include("likeCount");
+            Post unliked = mongoTemplate.findAndModify(unlikeQuery,
+                    new Update().pull("likedByUsers", userId).inc("likeCount", -1),
+                    options, Post.class);
+            if (unliked != null) {
+                resourceVersionService.bump(ResourceVersionService.POSTS);
+                return new LikeResult(postId, unliked.getLikeCount(), false);
+            }
+
+            if (LikeCounts.backfill(mongoTemplate, postId)) {
+                continue;
+            }
+            if (!mongoTemplate.exists(new Query(Criteria.where("_id").is(postId)), Post.class)) {
+                throw new IllegalArgumentException("Post not found");
+            }
+        }
+        throw new IllegalStateException("Could not toggle like due to concurrent updates");
     }
 
     public PostResponse addComment(String postId, String userId, String content) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("Post not found"));
-
-        User user = getUserDetails(userId);
-        String authorName = user.getFirstName() + " " + user.getLastName();
-        String commentText = userId + "|" + authorName + ": " + content;
-        
-        post.getComments().add(commentText);
-        post = postRepository.save(post);
-        
+        Post post = postCommentService.addComment(postId, userId, content);
+        resourceVersionService.bump(ResourceVersionService.POSTS);
         return convertToPostResponse(post);
     }
 
-    public PostResponse updateComment(String postId, int commentIndex, String userId, String content) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("Post not found"));
-
-        if (commentIndex < 0 || commentIndex >= post.getComments().size()) {
-            throw new IllegalArgumentException("Invalid comment index");
-        }
-
-        String existingComment = post.getComments().get(commentIndex);
-        String commentAuthorId = existingComment.split("\\|")[0];
-        
-        if (!commentAuthorId.equals(userId)) {
-            throw new IllegalArgumentException("You can only edit your own comments");
-        }
-
-        User user = getUserDetails(userId);
-        String authorName = user.getFirstName() + " " + user.getLastName();
-        String commentText = userId + "|" + authorName + ": " + content;
-        
-        List<String> comments = post.getComments();
-        comments.set(commentIndex, commentText);
-        post = postRepository.save(post);
-        
+    public PostResponse updateComment(String postId, String commentId, String userId, String content) {
+        Post post = postCommentService.updateComment(postId, commentId, userId, content);
+        resourceVersionService.bump(ResourceVersionService.POSTS);
         return convertToPostResponse(post);
     }
 
-    public PostResponse deleteComment(String postId, int commentIndex, String userId) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("Post not found"));
-
-        if (commentIndex < 0 || commentIndex >= post.getComments().size()) {
-            throw new IllegalArgumentException("Invalid comment index");
-        }
-
-        // Check if user is post owner or comment author
-        String comment = post.getComments().get(commentIndex);
-        String commentAuthorId = comment.split("\\|")[0];
-
-        if (!userId.equals(post.getUserId()) && !userId.equals(commentAuthorId)) {
-            throw new IllegalArgumentException("You can only delete your own comments or comments on your posts");
-        }
-
-        List<String> comments = post.getComments();
-        comments.remove(commentIndex);
-        post = postRepository.save(post);
-        
+    public PostResponse deleteComment(String postId, String commentId, String userId) {
+        Post post = postCommentService.deleteComment(postId, commentId, userId);
+        resourceVersionService.bump(ResourceVersionService.POSTS);
         return convertToPostResponse(post);
     }
 
-    public boolean canModifyComment(String postId, int commentIndex, String userId) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("Post not found"));
-
-        if (commentIndex < 0 || commentIndex >= post.getComments().size()) {
-            throw new IllegalArgumentException("Invalid comment index");
-        }
-
-        String comment = post.getComments().get(commentIndex);
-        String commentAuthorId = comment.split("\\|")[0];
+    public boolean canModifyComment(String postId, String commentId, String userId) {
+        return postCommentService.canModifyComment(postId, commentId, userId);
+    }
 
-        // Only allow comment author to modify
-        return userId.equals(commentAuthorId);
+    public CursorPage<Comment> getComments(String postId, String cursor, int limit) {
+        return postCommentService.getComments(postId, cursor, limit);
     }
 
     public boolean isPostOwner(String postId, String userId) {
@@ -347,44 +467,16 @@ public class PostService {
     }
 
     public PostResponse handleReaction(String postId, String userId, String reactionType) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("Post not found"));
-
-        if (post.getUserReactions() == null) {
-            post.setUserReactions(new HashMap<>());
-        }
-
-        // Remove existing reaction if same type or add new reaction
-        if (post.getUserReaction(userId) != null && 
-            post.getUserReaction(userId).toString().equals(reactionType)) {
-            post.getUserReactions().remove(userId);
-        } else if (reactionType != null && !reactionType.isEmpty()) {
-            try {
-                Reaction reaction = Reaction.valueOf(reactionType.toUpperCase());
-                post.getUserReactions().put(userId, reaction);
-            } catch (IllegalArgumentException e) {
-                throw new IllegalArgumentException("Invalid reaction type: must be LIKE or HEART");
-            }
-        }
-
-        // Update reaction counts
-        post.updateReactionCounts();
-        post = postRepository.save(post);
-
-        PostResponse response = new PostResponse(post);
-        response.setUserReaction(post.getUserReaction(userId));
-        response.setReactionCounts(post.getReactionCounts());
-        
+        PostResponse response = engagementBuffer.isEnabled()
+                ? engagementBuffer.react(postId, userId, PostReactionService.parseReaction(reactionType))
+                : postReactionService.react(postId, userId, reactionType);
+        resourceVersionService.bump(ResourceVersionService.POSTS);
         return response;
     }
 
     public PostResponse deleteAllComments(String postId) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("Post not found"));
-        
-        post.setComments(new ArrayList<>());
-        post = postRepository.save(post);
-        
+        Post post = postCommentService.deleteAllComments(postId);
+        resourceVersionService.bump(ResourceVersionService.POSTS);
         return convertToPostResponse(post);
     }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.example.backend.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory version counters for read endpoints. Write paths bump the
+ * counter of what they changed, and readers derive an ETag from the counter
+ * so an unchanged resource can be answered with 304 before any query runs.
+ *
+ * Counters live in this process only and restart from a new epoch on boot,
+ * which invalidates every ETag handed out by a previous run.
+ */
+@Service
+public class ResourceVersionService {
+    public static final String POSTS = "posts";
+    public static final String TUTORIALS = "tutorials";
+    public static final String PRODUCTS = "products";
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public static String user(String userId) {
+        return "user:" + userId;
+    }
+
+    public void bump(String key) {
+        versions.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Builds the ETag for the current version of a key. Request parameters or
+     * the viewer that shape the representation are passed as variant so that
+     * different views of the same version never share a tag.
+     */
+    public String etag(String key, Object... variant) {
+        AtomicLong version = versions.get(key);
+        String tag = key + "-" + epoch + "-" + (version != null ? version.get() : 0);
+        if (variant.length > 0) {
+            tag += "-" + Integer.toHexString(Arrays.hashCode(variant));
+        }
+        return "W/\"" + tag + "\"";
+    }
+
+    public boolean isNotModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        String opaqueTag = stripWeakPrefix(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || stripWeakPrefix(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String stripWeakPrefix(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
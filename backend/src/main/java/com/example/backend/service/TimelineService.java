@@ -0,0 +1,225 @@
+package com.example.backend.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.model.CursorPage;
+import com.example.backend.model.FeedCursor;
+import com.example.backend.model.Post;
+import com.example.backend.model.TimelineEntry;
+import com.example.backend.model.User;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Personalized timelines. New posts are fanned out on write into each
+ * follower's entries in the "timelines" collection; authors with more
+ * followers than the celebrity threshold are skipped and their posts are
+ * merged in when a timeline is read.
+ */
+@Service
+public class TimelineService {
+    private static final Logger logger = Logger.getLogger(TimelineService.class.getName());
+    private static final int FOLLOW_BACKFILL_POSTS = 20;
+    private static final int MAX_QUEUED_TASKS = 1000;
+    private static final long SHUTDOWN_WAIT_SECONDS = 30;
+
+    private final MongoTemplate mongoTemplate;
+    private final int celebrityThreshold;
+    private final int batchSize;
+    private final ThreadPoolExecutor fanOutExecutor;
+
+    public TimelineService(
+            MongoTemplate mongoTemplate,
+            @Value("${timeline.celebrity-follower-threshold:5000}") int celebrityThreshold,
+            @Value("${timeline.fan-out-batch-size:500}") int batchSize,
+            @Value("${timeline.fan-out-threads:2}") int threads) {
+        this.mongoTemplate = mongoTemplate;
+        this.celebrityThreshold = celebrityThreshold;
+        this.batchSize = batchSize;
+        // Timeline writes must not be dropped, so a full queue makes the caller run the task itself
+        this.fanOutExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_TASKS), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        fanOutExecutor.shutdown();
+        if (!fanOutExecutor.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+            logger.log(Level.WARNING, "Timeline tasks still running at shutdown, {0} queued",
+                    fanOutExecutor.getQueue().size());
+        }
+    }
+
+    public void fanOut(Post post) {
+        fanOutExecutor.execute(() -> {
+            try {
+                writeToTimelines(post);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed to fan out post " + post.getId(), e);
+            }
+        });
+    }
+
+    public void removePost(String postId) {
+        fanOutExecutor.execute(() -> {
+            try {
+                mongoTemplate.remove(new Query(Criteria.where("postId").is(postId)), TimelineEntry.class);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed to remove post " + postId + " from timelines", e);
+            }
+        });
+    }
+
+    public void onFollow(String followerId, String followeeId) {
+        fanOutExecutor.execute(() -> {
+            try {
+                backfillFollowee(followerId, followeeId);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed to backfill timeline of " + followerId, e);
+            }
+        });
+    }
+
+    public CursorPage<Post> getTimeline(String userId, String viewerId, String cursor, int pageSize) {
+        FeedCursor position = cursor != null && !cursor.isEmpty() ? FeedCursor.decode(cursor) : null;
+
+        // Fanned-out entries: one range scan over (ownerId, createdAt, postId)
+        Query entryQuery = new Query(Criteria.where("ownerId").is(userId));
+        if (position != null) {
+            entryQuery.addCriteria(position.olderThan("postId", position.getId()));
+        }
+        entryQuery.with(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "postId")));
+        entryQuery.limit(pageSize + 1);
+        List<TimelineEntry> entries = mongoTemplate.find(entryQuery, TimelineEntry.class);
+
+        // Posts of followed celebrities are merged in at read time
+        List<Post> celebrityPosts = Collections.emptyList();
+        List<String> celebrityIds = findFollowedCelebrities(userId);
+        if (!celebrityIds.isEmpty()) {
+            Query postQuery = PostFeedQueries.forViewer(viewerId)
+                    .addCriteria(Criteria.where("userId").in(celebrityIds));
+            if (position != null) {
+                postQuery.addCriteria(position.olderThan("_id", position.getObjectId()));
+            }
+            postQuery.with(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id")));
+            postQuery.limit(pageSize + 1);
+            celebrityPosts = mongoTemplate.find(postQuery, Post.class);
+        }
+
+        Map<String, Post> merged = new LinkedHashMap<>();
+        if (!entries.isEmpty()) {
+            List<String> postIds = entries.stream().map(TimelineEntry::getPostId).collect(Collectors.toList());
+            Query postQuery = PostFeedQueries.forViewer(viewerId).addCriteria(Criteria.where("_id").in(postIds));
+            mongoTemplate.find(postQuery, Post.class)
+                    .forEach(post -> merged.put(post.getId(), post));
+        }
+        celebrityPosts.forEach(post -> merged.putIfAbsent(post.getId(), post));
+
+        List<Post> posts = new ArrayList<>(merged.values());
+        // Undated posts go last, matching the order of the queries above
+        posts.sort(Comparator.comparing(Post::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(Post::getId).reversed());
+
+        boolean hasMore = entries.size() > pageSize || celebrityPosts.size() > pageSize || posts.size() > pageSize;
+        if (posts.size() > pageSize) {
+            posts = posts.subList(0, pageSize);
+        }
+        String nextCursor = null;
+        if (hasMore && !posts.isEmpty()) {
+            Post last = posts.get(posts.size() - 1);
+            nextCursor = new FeedCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(posts, nextCursor);
+    }
+
+    private void writeToTimelines(Post post) {
+        Set<String> followers = getFollowers(post.getUserId());
+
+        Set<String> recipients = new LinkedHashSet<>();
+        recipients.add(post.getUserId());
+        if (followers.size() <= celebrityThreshold) {
+            recipients.addAll(followers);
+        }
+        List<String> owners = new ArrayList<>(recipients);
+
+        // Upsert so entries a follow backfill already wrote do not fail the batch
+        for (int from = 0; from < owners.size(); from += batchSize) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TimelineEntry.class);
+            owners.subList(from, Math.min(from + batchSize, owners.size()))
+                    .forEach(ownerId -> upsertEntry(bulk, ownerId, post));
+            bulk.execute();
+        }
+    }
+
+    private void backfillFollowee(String followerId, String followeeId) {
+        if (getFollowers(followeeId).size() > celebrityThreshold) {
+            return;
+        }
+
+        Query recentPosts = new Query(Criteria.where("userId").is(followeeId))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt"))
+                .limit(FOLLOW_BACKFILL_POSTS);
+        recentPosts.fields().include("userId", "createdAt");
+        List<Post> posts = mongoTemplate.find(recentPosts, Post.class);
+        if (posts.isEmpty()) {
+            return;
+        }
+
+        // Upsert so a repeated follow does not duplicate entries
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TimelineEntry.class);
+        posts.forEach(post -> upsertEntry(bulk, followerId, post));
+        bulk.execute();
+    }
+
+    private void upsertEntry(BulkOperations bulk, String ownerId, Post post) {
+        bulk.upsert(
+                new Query(Criteria.where("ownerId").is(ownerId).and("postId").is(post.getId())),
+                new Update()
+                        .setOnInsert("authorId", post.getUserId())
+                        .setOnInsert("createdAt", post.getCreatedAt()));
+    }
+
+    private Set<String> getFollowers(String userId) {
+        Query query = new Query(Criteria.where("_id").is(userId));
+        query.fields().include("followers");
+        User user = mongoTemplate.findOne(query, User.class);
+        return user != null && user.getFollowers() != null ? user.getFollowers() : Collections.emptySet();
+    }
+
+    private List<String> findFollowedCelebrities(String userId) {
+        Query query = new Query(Criteria.where("followers").is(userId)
+                .andOperator(Criteria.expr(ComparisonOperators.Gt.valueOf(
+                        ArrayOperators.Size.lengthOfArray(
+                                ConditionalOperators.ifNull("followers").then(Collections.emptyList())))
+                        .greaterThanValue(celebrityThreshold))));
+        query.fields().include("_id");
+        return mongoTemplate.find(query, User.class).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -1,12 +1,12 @@
 package com.example.backend.service;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -15,15 +15,15 @@ import com.example.backend.model.UserProgress;
 import com.example.backend.repository.TutorialRepository;
 import com.example.backend.repository.UserProgressRepository;
 import com.example.backend.repository.UserRepository;
-import com.mongodb.client.gridfs.GridFSBucket;
-import com.mongodb.client.gridfs.GridFSBuckets;
 
 @Service
 public class TutorialService {
     private final TutorialRepository tutorialRepository;
     private final UserRepository userRepository;
-    private final GridFSBucket gridFSBucket;
     private final MediaService mediaService;
+    private final ResourceVersionService resourceVersionService;
+    private final MediaUploadService mediaUploadService;
+    private final MediaGarbageCollector mediaGarbageCollector;
 
     @Autowired
     private UserProgressRepository userProgressRepository;
@@ -35,12 +35,16 @@ public class TutorialService {
     public TutorialService(
             TutorialRepository tutorialRepository,
             UserRepository userRepository,
-            MongoTemplate mongoTemplate,
-            MediaService mediaService) {
+            MediaService mediaService,
+            ResourceVersionService resourceVersionService,
+            MediaUploadService mediaUploadService,
+            MediaGarbageCollector mediaGarbageCollector) {
         this.tutorialRepository = tutorialRepository;
         this.userRepository = userRepository;
-        this.gridFSBucket = GridFSBuckets.create(mongoTemplate.getDb(), "media");
         this.mediaService = mediaService;
+        this.resourceVersionService = resourceVersionService;
+        this.mediaUploadService = mediaUploadService;
+        this.mediaGarbageCollector = mediaGarbageCollector;
     }
 
     public List<Tutorial> getAllTutorials() {
@@ -59,7 +63,8 @@ public class TutorialService {
     public Tutorial createTutorial(String userId, String title, String description, 
                                  List<String> steps, List<String> materials,
                                  String craftType, // Add this parameter
-                                 MultipartFile video, List<MultipartFile> images) throws IOException {
+                                 MultipartFile video, String uploadedVideoId,
+                                 List<MultipartFile> images) throws IOException {
         // Validate user exists
         userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("User not found"));
@@ -78,8 +83,13 @@ public class TutorialService {
         try {
             // Handle video upload
             if (video != null && !video.isEmpty()) {
-                validateVideo(video);
-                String videoId = mediaService.saveMedia(video, "video");
+                Mp4BoxParser.VideoInfo videoInfo = validateVideo(video);
+                String videoId = mediaService.saveMedia(video, "video", videoInfo.appendTo(new org.bson.Document()));
+                mediaIds.add(videoId);
+                tutorial.setVideoUrl("/api/media/" + videoId);
+            } else if (uploadedVideoId != null && !uploadedVideoId.isEmpty()) {
+                // Video sent earlier through the resumable upload API
+                String videoId = mediaUploadService.claimVideo(uploadedVideoId, userId, MAX_VIDEO_SIZE_MB * 1024L * 1024);
                 mediaIds.add(videoId);
                 tutorial.setVideoUrl("/api/media/" + videoId);
             }
@@ -99,22 +109,17 @@ public class TutorialService {
             }
 
             tutorial.setMediaIds(mediaIds);
-            return tutorialRepository.save(tutorial);
+            Tutorial savedTutorial = tutorialRepository.save(tutorial);
+            resourceVersionService.bump(ResourceVersionService.TUTORIALS);
+            return savedTutorial;
         } catch (Exception e) {
             // Clean up any uploaded media if tutorial creation fails
-            mediaIds.forEach(id -> {
-                try {
-                    gridFSBucket.delete(new org.bson.types.ObjectId(id));
-                } catch (Exception ex) {
-                    // Log error but don't throw
-                    System.err.println("Error cleaning up media: " + ex.getMessage());
-                }
-            });
+            mediaGarbageCollector.enqueueRelease(mediaIds);
             throw new RuntimeException("Failed to create tutorial: " + e.getMessage());
         }
     }
 
-    private void validateVideo(MultipartFile video) {
+    private Mp4BoxParser.VideoInfo validateVideo(MultipartFile video) throws IOException {
         if (!ALLOWED_VIDEO_TYPES.contains(video.getContentType())) {
             throw new IllegalArgumentException(
                     "Invalid video format. Allowed formats: " + String.join(", ", ALLOWED_VIDEO_TYPES));
@@ -122,6 +127,9 @@ public class TutorialService {
         if (video.getSize() > MAX_VIDEO_SIZE_MB * 1024 * 1024) {
             throw new IllegalArgumentException("Video size must be less than " + MAX_VIDEO_SIZE_MB + "MB");
         }
+        try (InputStream in = video.getInputStream()) {
+            return Mp4BoxParser.read(in);
+        }
     }
 
     public UserProgress getUserProgress(String userId, String tutorialId) {
@@ -178,29 +186,22 @@ public class TutorialService {
 
     public void deleteTutorial(String id) {
         Tutorial tutorial = getTutorialById(id);
-        
-        // Delete associated media files
-        if (tutorial.getMediaIds() != null) {
-            tutorial.getMediaIds().forEach(mediaId -> {
-                try {
-                    gridFSBucket.delete(new org.bson.types.ObjectId(mediaId));
-                } catch (Exception ex) {
-                    System.err.println("Error deleting media file: " + ex.getMessage());
-                }
-            });
-        }
 
         tutorialRepository.deleteById(id);
+        // Media is released in the background once the tutorial is gone
+        mediaGarbageCollector.enqueueRelease(mediaReferences(tutorial));
+        resourceVersionService.bump(ResourceVersionService.TUTORIALS);
     }
 
     public Tutorial updateTutorial(String id, String title, String description, 
                                  List<String> steps, List<String> materials, 
-                                 String craftType, MultipartFile video, 
+                                 String craftType, MultipartFile video, String uploadedVideoId,
                                  List<MultipartFile> images,
                                  boolean keepExistingImages,
                                  boolean keepExistingVideo) throws IOException {
         
         Tutorial existingTutorial = getTutorialById(id);
+        List<String> previousMedia = mediaReferences(existingTutorial);
         
         // Update basic fields
         existingTutorial.setTitle(title);
@@ -219,13 +220,15 @@ public class TutorialService {
 
         // Handle new video
         if (video != null && !video.isEmpty()) {
-            validateVideo(video);
-            // Delete old video if exists
-            if (existingTutorial.getVideoUrl() != null) {
-                String oldVideoId = extractMediaId(existingTutorial.getVideoUrl());
-                gridFSBucket.delete(new org.bson.types.ObjectId(oldVideoId));
-            }
-            String videoId = mediaService.saveMedia(video, "video");
+            Mp4BoxParser.VideoInfo videoInfo = validateVideo(video);
+            removeVideo(existingTutorial, mediaIds);
+            String videoId = mediaService.saveMedia(video, "video", videoInfo.appendTo(new org.bson.Document()));
+            mediaIds.add(videoId);
+            existingTutorial.setVideoUrl("/api/media/" + videoId);
+        } else if (uploadedVideoId != null && !uploadedVideoId.isEmpty()) {
+            String videoId = mediaUploadService.claimVideo(
+                    uploadedVideoId, existingTutorial.getUserId(), MAX_VIDEO_SIZE_MB * 1024L * 1024);
+            removeVideo(existingTutorial, mediaIds);
             mediaIds.add(videoId);
             existingTutorial.setVideoUrl("/api/media/" + videoId);
         }
@@ -244,8 +247,53 @@ public class TutorialService {
             existingTutorial.setImageUrls(imageUrls);
         }
 
+        // A kept video stays listed even when the images are replaced
+        if (existingTutorial.getVideoUrl() != null) {
+            String videoId = extractMediaId(existingTutorial.getVideoUrl());
+            if (!mediaIds.contains(videoId)) {
+                mediaIds.add(0, videoId);
+            }
+        }
         existingTutorial.setMediaIds(mediaIds);
-        return tutorialRepository.save(existingTutorial);
+        Tutorial updatedTutorial = tutorialRepository.save(existingTutorial);
+        // Release what the saved tutorial no longer uses
+        mediaReferences(updatedTutorial).forEach(previousMedia::remove);
+        mediaGarbageCollector.enqueueRelease(previousMedia);
+        resourceVersionService.bump(ResourceVersionService.TUTORIALS);
+        return updatedTutorial;
+    }
+
+    private void removeVideo(Tutorial tutorial, List<String> mediaIds) {
+        if (tutorial.getVideoUrl() != null) {
+            mediaIds.remove(extractMediaId(tutorial.getVideoUrl()));
+            tutorial.setVideoUrl(null);
+        }
+    }
+
+    /**
+     * Ids of the media references a tutorial holds, one per stored upload, so
+     * the same deduplicated file can appear more than once. URL fields only
+     * add ids that older edits dropped from mediaIds.
+     */
+    private List<String> mediaReferences(Tutorial tutorial) {
+        List<String> mediaIds = new ArrayList<>();
+        if (tutorial.getMediaIds() != null) {
+            mediaIds.addAll(tutorial.getMediaIds());
+        }
+        List<String> urls = new ArrayList<>();
+        if (tutorial.getVideoUrl() != null) {
+            urls.add(tutorial.getVideoUrl());
+        }
+        if (tutorial.getImageUrls() != null) {
+            urls.addAll(tutorial.getImageUrls());
+        }
+        for (String url : urls) {
+            String mediaId = extractMediaId(url);
+            if (!mediaIds.contains(mediaId)) {
+                mediaIds.add(mediaId);
+            }
+        }
+        return mediaIds;
     }
 
     private String extractMediaId(String url) {
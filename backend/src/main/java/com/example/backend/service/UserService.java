@@ -1,7 +1,7 @@
 package com.example.backend.service;
 
 import java.io.IOException;
-import java.util.logging.Logger;
+import java.util.List;
 
 import org.bson.Document;
 import org.bson.types.ObjectId;
@@ -10,18 +10,23 @@ import org.springframework.web.multipart.MultipartFile;
 
 import com.example.backend.model.User;
 import com.example.backend.repository.UserRepository;
-import com.mongodb.client.gridfs.GridFSBucket;
-import com.mongodb.client.gridfs.model.GridFSUploadOptions;
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
-    private final GridFSBucket gridFSBucket;
-    private final Logger logger = Logger.getLogger(UserService.class.getName());
+    private final UserSummaryService userSummaryService;
+    private final ImageVariantService imageVariantService;
+    private final MediaBlobService mediaBlobService;
+    private final MediaGarbageCollector mediaGarbageCollector;
 
-    public UserService(UserRepository userRepository, GridFSBucket gridFSBucket) {
+    public UserService(UserRepository userRepository, UserSummaryService userSummaryService,
+            ImageVariantService imageVariantService, MediaBlobService mediaBlobService,
+            MediaGarbageCollector mediaGarbageCollector) {
         this.userRepository = userRepository;
-        this.gridFSBucket = gridFSBucket;
+        this.userSummaryService = userSummaryService;
+        this.imageVariantService = imageVariantService;
+        this.mediaBlobService = mediaBlobService;
+        this.mediaGarbageCollector = mediaGarbageCollector;
     }
 
     public String updateProfilePicture(String userId, MultipartFile file) throws IOException {
@@ -43,31 +48,25 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         try {
-            // Delete old profile picture if exists
-            if (user.getProfilePicture() != null) {
-                String oldMediaId = user.getProfilePicture().replace("/api/media/", "");
-                try {
-                    gridFSBucket.delete(new ObjectId(oldMediaId));
-                } catch (Exception e) {
-                    // Log the error but continue with the update
-                    logger.warning("Failed to delete old profile picture: " + e.getMessage());
-                }
-            }
-
             // Save new profile picture with metadata
-            GridFSUploadOptions options = new GridFSUploadOptions()
-                    .metadata(new Document("type", "profile")
-                            .append("userId", userId)
-                            .append("contentType", contentType));
-            
-            ObjectId fileId = gridFSBucket.uploadFromStream(
+            ObjectId fileId = mediaBlobService.store(
+                    file,
                     file.getOriginalFilename(),
-                    file.getInputStream(),
-                    options);
+                    imageVariantService.withDimensions(file, new Document("type", "profile")
+                            .append("userId", userId)
+                            .append("contentType", contentType)));
+            imageVariantService.generateAsync(fileId);
 
+            String previousPicture = user.getProfilePicture();
             String profilePicture = "/api/media/" + fileId.toString();
             user.setProfilePicture(profilePicture);
             userRepository.save(user);
+            userSummaryService.invalidate(userId);
+
+            // Release the old picture only now, so re-uploading the same image keeps the stored file
+            if (previousPicture != null) {
+                mediaGarbageCollector.enqueueRelease(List.of(previousPicture));
+            }
 
             return profilePicture;
         } catch (Exception e) {
@@ -0,0 +1,102 @@
+package com.example.backend.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.model.UserSummary;
+
+/**
+ * Resolves author names and avatars for lists of content. Misses are loaded
+ * with a single projected query per batch and kept in a bounded LRU cache
+ * whose entries expire after a fixed TTL.
+ */
+@Service
+public class UserSummaryService {
+    private final MongoTemplate mongoTemplate;
+    private final long ttlMillis;
+    private final Map<String, CachedSummary> cache;
+
+    public UserSummaryService(
+            MongoTemplate mongoTemplate,
+            @Value("${user-summary.cache.max-size:10000}") int maxSize,
+            @Value("${user-summary.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedSummary> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    public UserSummary getSummary(String userId) {
+        if (userId == null) {
+            return null;
+        }
+        return getSummaries(Collections.singleton(userId)).get(userId);
+    }
+
+    public Map<String, UserSummary> getSummaries(Collection<String> userIds) {
+        Map<String, UserSummary> result = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        long now = System.currentTimeMillis();
+
+        for (String userId : userIds) {
+            if (userId == null) {
+                continue;
+            }
+            CachedSummary cached = cache.get(userId);
+            if (cached != null && cached.expiresAt > now) {
+                result.put(userId, cached.summary);
+            } else {
+                missing.add(userId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            for (UserSummary summary : loadSummaries(missing)) {
+                cache.put(summary.getId(), new CachedSummary(summary, now + ttlMillis));
+                result.put(summary.getId(), summary);
+            }
+        }
+        return result;
+    }
+
+    public void invalidate(String userId) {
+        if (userId != null) {
+            cache.remove(userId);
+        }
+    }
+
+    private List<UserSummary> loadSummaries(Set<String> userIds) {
+        Query query = new Query(Criteria.where("_id").in(userIds));
+        query.fields().include("firstName", "lastName", "profilePicture");
+        List<UserSummary> summaries = mongoTemplate.find(query, UserSummary.class, "users");
+        summaries.removeIf(summary -> Objects.isNull(summary.getId()));
+        return summaries;
+    }
+
+    private static class CachedSummary {
+        private final UserSummary summary;
+        private final long expiresAt;
+
+        CachedSummary(UserSummary summary, long expiresAt) {
+            this.summary = summary;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.backend.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.backend.model.ByteRange;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Moves the moov box of uploaded videos in front of the media data so
+ * players can start without first fetching the end of the file. The
+ * rewritten copy is stored next to the original, with variantOf pointing
+ * back so it is deleted along with it. The original keeps its id, and
+ * metadata.faststart is set in one update to the id whose bytes should be
+ * served. Videos that are already laid out this way point at themselves.
+ */
+@Service
+public class VideoFaststartService {
+    private static final Logger logger = Logger.getLogger(VideoFaststartService.class.getName());
+    private static final String FILES_COLLECTION = "media.files";
+    private static final int MAX_QUEUED_VIDEOS = 32;
+    private static final List<String> CHUNK_OFFSET_PATH = List.of("trak", "mdia", "minf", "stbl");
+
+    private final MediaStore mediaStore;
+    private final MongoTemplate mongoTemplate;
+    private final MediaMetadataCache metadataCache;
+    private final boolean enabled;
+    private final ThreadPoolExecutor executor;
+
+    public VideoFaststartService(
+            MediaStore mediaStore,
+            MongoTemplate mongoTemplate,
+            MediaMetadataCache metadataCache,
+            @Value("${media.faststart.enabled:true}") boolean enabled,
+            @Value("${media.faststart.threads:1}") int threads) {
+        this.mediaStore = mediaStore;
+        this.mongoTemplate = mongoTemplate;
+        this.metadataCache = metadataCache;
+        this.enabled = enabled;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_VIDEOS));
+    }
+
+    /**
+     * Queues a stored video for rewriting. Until it is done, or if the queue
+     * is full, the video is served as uploaded.
+     */
+    public void rewriteAsync(ObjectId fileId) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            executor.execute(() -> rewrite(fileId));
+        } catch (RejectedExecutionException e) {
+            logger.log(Level.WARNING, "Faststart queue full, skipping " + fileId);
+        }
+    }
+
+    /**
+     * Returns the file whose bytes should be served for a stored file.
+     */
+    public GridFSFile resolve(GridFSFile file) {
+        Object target = file.getMetadata() != null ? file.getMetadata().get("faststart") : null;
+        if (target instanceof ObjectId && !target.equals(file.getObjectId())) {
+            GridFSFile rewritten = metadataCache.find((ObjectId) target);
+            if (rewritten != null) {
+                return rewritten;
+            }
+        }
+        return file;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void rewrite(ObjectId fileId) {
+        ObjectId rewrittenId = null;
+        boolean switched = false;
+        try {
+            GridFSFile original = mediaStore.find(fileId);
+            if (original == null || original.getMetadata() == null
+                    || original.getMetadata().containsKey("faststart")) {
+                return;
+            }
+
+            long mdatStart = -1;
+            long moovStart = -1;
+            long moovSize = 0;
+            long offset = 0;
+            while (offset + 8 <= original.getLength()) {
+                ByteBuffer header = ByteBuffer.wrap(readRange(original, offset,
+                        (int) Math.min(16, original.getLength() - offset)));
+                long size = header.getInt(0) & 0xffffffffL;
+                String type = new String(header.array(), 4, 4, StandardCharsets.ISO_8859_1);
+                if (size == 1 && header.limit() >= 16) {
+                    size = header.getLong(8);
+                } else if (size == 0) {
+                    size = original.getLength() - offset;
+                }
+                if (size < 8 || offset + size > original.getLength()) {
+                    break;
+                }
+                if ("mdat".equals(type) && mdatStart < 0) {
+                    mdatStart = offset;
+                } else if ("moov".equals(type)) {
+                    moovStart = offset;
+                    moovSize = size;
+                } else if ("moof".equals(type)) {
+                    // Fragmented files are already streamable
+                    moovStart = -1;
+                    break;
+                }
+                offset += size;
+            }
+
+            if (moovStart < 0 || mdatStart < 0 || moovStart < mdatStart
+                    || moovSize > Mp4BoxParser.MAX_MOVIE_BOX_BYTES) {
+                switchTo(fileId, fileId);
+                return;
+            }
+            byte[] moov = readRange(original, moovStart, (int) moovSize);
+            if (!shiftChunkOffsets(moov, mdatStart, moovStart, moovSize)) {
+                logger.log(Level.INFO, "Video " + fileId + " cannot be rewritten for faststart");
+                switchTo(fileId, fileId);
+                return;
+            }
+
+            try (InputStream in = mediaStore.openStream(original)) {
+                // One pass over the original: the head, the moved moov, then everything else minus the old moov
+                InputStream content = new SequenceInputStream(Collections.enumeration(List.of(
+                        new Slice(in, 0, mdatStart),
+                        new ByteArrayInputStream(moov),
+                        new Slice(in, 0, moovStart - mdatStart),
+                        new Slice(in, moovSize, Long.MAX_VALUE))));
+                Document metadata = new Document(original.getMetadata());
+                metadata.remove("sha256");
+                rewrittenId = mediaStore.store(original.getFilename(), content, metadata.append("variantOf", fileId));
+            }
+            GridFSFile rewritten = mediaStore.find(rewrittenId);
+            // Fails if the original was deleted meanwhile
+            switched = rewritten != null && rewritten.getLength() == original.getLength()
+                    && switchTo(fileId, rewrittenId);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to rewrite video " + fileId + " for faststart", e);
+        } finally {
+            if (rewrittenId != null && !switched) {
+                mediaStore.delete(rewrittenId);
+            }
+        }
+    }
+
+    /**
+     * Adds the moov size to every chunk offset that pointed between the
+     * first mdat and the old moov position, in place. Returns false if the
+     * movie has no offset tables this can patch, such as a compressed moov,
+     * or an offset no longer fits a 32-bit stco entry.
+     */
+    static boolean shiftChunkOffsets(byte[] moov, long mdatStart, long moovStart, long moovSize) {
+        List<Mp4BoxParser.Box> tables;
+        try {
+            ByteBuffer body = Mp4BoxParser.nextBox(ByteBuffer.wrap(moov)).body();
+            tables = findTables(body, CHUNK_OFFSET_PATH);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return false;
+        }
+        if (tables.isEmpty()) {
+            return false;
+        }
+        for (Mp4BoxParser.Box table : tables) {
+            // Slices share the moov array, so writes go straight into it
+            ByteBuffer entries = table.body();
+            boolean wide = "co64".equals(table.type());
+            int count = entries.getInt(4);
+            if (entries.limit() < 8 + (long) count * (wide ? 8 : 4)) {
+                return false;
+            }
+            for (int i = 0; i < count; i++) {
+                int position = 8 + i * (wide ? 8 : 4);
+                long chunkOffset = wide ? entries.getLong(position) : entries.getInt(position) & 0xffffffffL;
+                if (chunkOffset < mdatStart || chunkOffset >= moovStart) {
+                    continue;
+                }
+                chunkOffset += moovSize;
+                if (wide) {
+                    entries.putLong(position, chunkOffset);
+                } else if (chunkOffset > 0xffffffffL) {
+                    return false;
+                } else {
+                    entries.putInt(position, (int) chunkOffset);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects the stco and co64 tables below the given container path.
+     */
+    private static List<Mp4BoxParser.Box> findTables(ByteBuffer container, List<String> path) {
+        List<Mp4BoxParser.Box> tables = new ArrayList<>();
+        for (Mp4BoxParser.Box box = Mp4BoxParser.nextBox(container); box != null; box = Mp4BoxParser.nextBox(container)) {
+            if (path.isEmpty()) {
+                if ("stco".equals(box.type()) || "co64".equals(box.type())) {
+                    tables.add(box);
+                }
+            } else if (path.get(0).equals(box.type())) {
+                tables.addAll(findTables(box.body(), path.subList(1, path.size())));
+            }
+        }
+        return tables;
+    }
+
+    private boolean switchTo(ObjectId fileId, ObjectId servedId) {
+        boolean switched = mongoTemplate.getCollection(FILES_COLLECTION).updateOne(
+                new Document("_id", fileId).append("metadata.faststart", new Document("$exists", false)),
+                new Document("$set", new Document("metadata.faststart", servedId))).getModifiedCount() > 0;
+        metadataCache.remove(fileId);
+        return switched;
+    }
+
+    private byte[] readRange(GridFSFile file, long offset, int length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+        mediaStore.copyRange(file, new ByteRange(offset, offset + length - 1), out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Skips then passes on up to length bytes of a shared stream, which it
+     * leaves open.
+     */
+    private static class Slice extends InputStream {
+        private final InputStream in;
+        private long skip;
+        private long remaining;
+
+        Slice(InputStream in, long skip, long length) {
+            this.in = in;
+            this.skip = skip;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (skip > 0) {
+                in.skipNBytes(skip);
+                skip = 0;
+            }
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.backend.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class NdjsonWriterTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final NdjsonWriter writer = new NdjsonWriter(objectMapper);
+
+    @Test
+    void writesOneLinePerDocumentInBatches() throws Exception {
+        int count = NdjsonWriter.BATCH_SIZE * 2 + 50;
+        List<Integer> batchSizes = new ArrayList<>();
+        AtomicBoolean closed = new AtomicBoolean();
+
+        ResponseEntity<StreamingResponseBody> response = writer.stream(
+                () -> IntStream.range(0, count).boxed().onClose(() -> closed.set(true)),
+                batch -> {
+                    batchSizes.add(batch.size());
+                    return batch.stream().map(i -> Map.of("n", i)).collect(Collectors.toList());
+                });
+
+        assertEquals(NdjsonWriter.APPLICATION_NDJSON_VALUE, response.getHeaders().getContentType().toString());
+        String[] lines = write(response).split("\n", -1);
+        assertEquals(count + 1, lines.length);
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, objectMapper.readTree(lines[i]).get("n").asInt());
+        }
+        assertEquals("", lines[count]);
+        assertEquals(List.of(NdjsonWriter.BATCH_SIZE, NdjsonWriter.BATCH_SIZE, 50), batchSizes);
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void opensTheSourceOnlyWhenTheBodyIsWritten() throws Exception {
+        AtomicBoolean opened = new AtomicBoolean();
+
+        ResponseEntity<StreamingResponseBody> response = writer.stream(() -> {
+            opened.set(true);
+            return Stream.<String>empty();
+        }, batch -> batch);
+
+        assertFalse(opened.get());
+        assertEquals("", write(response));
+        assertTrue(opened.get());
+    }
+
+    @Test
+    void closesTheSourceWhenConversionFails() {
+        AtomicBoolean closed = new AtomicBoolean();
+
+        ResponseEntity<StreamingResponseBody> response = writer.stream(
+                () -> Stream.of("a", "b").onClose(() -> closed.set(true)),
+                batch -> {
+                    throw new IllegalStateException("conversion failed");
+                });
+
+        assertThrows(IllegalStateException.class, () -> write(response));
+        assertTrue(closed.get());
+    }
+
+    private static String write(ResponseEntity<StreamingResponseBody> response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
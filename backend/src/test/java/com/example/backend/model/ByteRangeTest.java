@@ -0,0 +1,77 @@
+package com.example.backend.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+class ByteRangeTest {
+    private static final long LENGTH = 1000;
+    private static final long MAX_OPEN = 100;
+    private static final int MAX_RANGES = 4;
+
+    @Test
+    void parsesClosedRangesAndClampsThemToTheFile() {
+        assertEquals("0-499", ranges("bytes=0-499"));
+        assertEquals("900-999", ranges("bytes=900-5000"));
+    }
+
+    @Test
+    void parsesSuffixRanges() {
+        assertEquals("800-999", ranges("bytes=-200"));
+        assertEquals("0-999", ranges("bytes=-5000"));
+    }
+
+    @Test
+    void capsOpenRanges() {
+        assertEquals("0-99", ranges("bytes=0-"));
+        assertEquals("950-999", ranges("bytes=950-"));
+    }
+
+    @Test
+    void keepsSeparateRangesInOrder() {
+        assertEquals("0-9,500-509", ranges("bytes=500-509, 0-9"));
+    }
+
+    @Test
+    void mergesOverlappingAndAdjacentRanges() {
+        assertEquals("0-199", ranges("bytes=0-99,50-149,150-199"));
+        assertEquals("0-999", ranges("bytes=0-999,0-999,0-999"));
+    }
+
+    @Test
+    void skipsUnsatisfiableRangesWhileOthersRemain() {
+        assertEquals("0-9", ranges("bytes=0-9,2000-3000"));
+    }
+
+    @Test
+    void reportsWellFormedRangesThatCannotBeSatisfied() {
+        assertTrue(ByteRange.parse("bytes=1000-", LENGTH, MAX_OPEN, MAX_RANGES).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-0", LENGTH, MAX_OPEN, MAX_RANGES).isEmpty());
+        assertTrue(ByteRange.parse("bytes=0-", 0, MAX_OPEN, MAX_RANGES).isEmpty());
+    }
+
+    @Test
+    void rejectsMalformedHeaders() {
+        for (String header : List.of("items=0-9", "bytes=", "bytes=abc", "bytes=-", "bytes=9-0", "bytes=0-9,",
+                "bytes=--5", "bytes=1-2-3", "bytes=99999999999999999999-")) {
+            assertNull(ByteRange.parse(header, LENGTH, MAX_OPEN, MAX_RANGES), header);
+        }
+    }
+
+    @Test
+    void rejectsMoreThanTheMaximumNumberOfRanges() {
+        assertEquals("0-0,2-2,4-4,6-6", ranges("bytes=0-0,2-2,4-4,6-6"));
+        assertNull(ByteRange.parse("bytes=0-0,2-2,4-4,6-6,8-8", LENGTH, MAX_OPEN, MAX_RANGES));
+    }
+
+    private static String ranges(String header) {
+        return ByteRange.parse(header, LENGTH, MAX_OPEN, MAX_RANGES).stream()
+                .map(range -> range.getStart() + "-" + range.getEnd())
+                .collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.backend.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+class FeedCursorTest {
+
+    @Test
+    void roundTripsThroughItsEncodedForm() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 1, 12, 30, 15, 123_000_000);
+        String id = new ObjectId().toHexString();
+
+        FeedCursor decoded = FeedCursor.decode(new FeedCursor(createdAt, id).encode());
+
+        assertEquals(createdAt, decoded.getCreatedAt());
+        assertEquals(id, decoded.getId());
+    }
+
+    @Test
+    void roundTripsDocumentsWithoutACreationTime() {
+        String id = new ObjectId().toHexString();
+
+        FeedCursor decoded = FeedCursor.decode(new FeedCursor(null, id).encode());
+
+        assertNull(decoded.getCreatedAt());
+        assertEquals(id, decoded.getId());
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        String id = new ObjectId().toHexString();
+        for (String raw : List.of("", "garbage", "2024-03-01T12:00|not-an-id", "yesterday|" + id,
+                "2024-03-01T12:00|" + id + "|extra")) {
+            String cursor = Base64.getUrlEncoder().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+            assertThrows(IllegalArgumentException.class, () -> FeedCursor.decode(cursor), raw);
+        }
+        assertThrows(IllegalArgumentException.class, () -> FeedCursor.decode("not base64!"));
+    }
+
+    @Test
+    void pagesThroughTiesAndUndatedDocumentsExactlyOnce() {
+        LocalDateTime noon = LocalDateTime.of(2024, 3, 1, 12, 0);
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            documents.add(document(noon, new ObjectId()));
+            documents.add(document(noon.minusMinutes(i), new ObjectId()));
+            documents.add(document(null, new ObjectId()));
+        }
+        Comparator<Document> newestFirst = Comparator
+                .comparing((Document document) -> (LocalDateTime) document.get("createdAt"),
+                        Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(document -> document.getObjectId("_id"))
+                .reversed();
+        documents.sort(newestFirst);
+
+        List<Document> seen = new ArrayList<>();
+        FeedCursor position = null;
+        while (true) {
+            List<Document> page = new ArrayList<>();
+            for (Document document : documents) {
+                if (page.size() < 2 && (position == null || matches(
+                        position.olderThan("_id", position.getObjectId()).getCriteriaObject(), document))) {
+                    page.add(document);
+                }
+            }
+            if (page.isEmpty()) {
+                break;
+            }
+            seen.addAll(page);
+            Document last = page.get(page.size() - 1);
+            position = FeedCursor.decode(new FeedCursor((LocalDateTime) last.get("createdAt"),
+                    last.getObjectId("_id").toHexString()).encode());
+        }
+
+        assertEquals(documents, seen);
+    }
+
+    private static Document document(LocalDateTime createdAt, ObjectId id) {
+        return new Document("_id", id).append("createdAt", createdAt);
+    }
+
+    /**
+     * Evaluates the equality, $lt and $or filters a cursor produces, where a
+     * missing value only equals null and never compares less than anything.
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean matches(Document filter, Document document) {
+        for (Map.Entry<String, Object> clause : filter.entrySet()) {
+            if ("$or".equals(clause.getKey())) {
+                if (((List<Document>) clause.getValue()).stream().noneMatch(or -> matches(or, document))) {
+                    return false;
+                }
+                continue;
+            }
+            Comparable<Object> value = (Comparable<Object>) document.get(clause.getKey());
+            if (clause.getValue() instanceof Document condition) {
+                if (value == null || value.compareTo(condition.get("$lt")) >= 0) {
+                    return false;
+                }
+            } else if (value == null ? clause.getValue() != null : !value.equals(clause.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
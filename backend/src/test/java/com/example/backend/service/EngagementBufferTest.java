@@ -0,0 +1,199 @@
+package com.example.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.example.backend.model.LikeResult;
+import com.example.backend.model.Post;
+import com.example.backend.model.PostResponse;
+import com.example.backend.model.Reaction;
+import com.mongodb.bulk.BulkWriteResult;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class EngagementBufferTest {
+    private final String postId = new ObjectId().toHexString();
+    private final String userId = new ObjectId().toHexString();
+
+    private MongoTemplate mongoTemplate;
+    private BulkOperations bulk;
+    private EngagementBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Post.class)).thenReturn(bulk);
+        buffer = new EngagementBuffer(mongoTemplate, new SimpleMeterRegistry(), true, 4);
+    }
+
+    @Test
+    void answersFromTheBufferBeforeAnythingIsWritten() {
+        givenStored(stored(5, false, null));
+
+        LikeResult result = buffer.toggleLike(postId, userId);
+
+        assertTrue(result.getIsLiked());
+        assertEquals(6, result.getLikeCount());
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Post.class));
+    }
+
+    @Test
+    void togglesThatCancelOutWriteNothing() {
+        givenStored(stored(5, false, null));
+
+        buffer.toggleLike(postId, userId);
+        buffer.toggleLike(postId, userId);
+        buffer.flush();
+
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Post.class));
+    }
+
+    @Test
+    void flushesTheNetChangeAsAGuardedUpdate() {
+        givenStored(stored(5, false, null));
+        givenFlushMatches(1);
+
+        buffer.toggleLike(postId, userId);
+        buffer.toggleLike(postId, userId);
+        buffer.toggleLike(postId, userId);
+        buffer.flush();
+
+        ArgumentCaptor<Query> guard = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk).updateOne(guard.capture(), update.capture());
+        assertEquals(new Document("$ne", userId), guard.getValue().getQueryObject().get("likedByUsers"));
+        assertEquals(new Document("likeCount", 1), update.getValue().getUpdateObject().get("$inc"));
+
+        // A clean flush drops the entry, so the next touch reads the stored state again
+        buffer.toggleLike(postId, userId);
+        verify(mongoTemplate, times(2)).findOne(any(Query.class), eq(Post.class));
+    }
+
+    @Test
+    void guardsReactionChangesOnThePreviousReaction() {
+        givenStored(stored(0, false, Reaction.LIKE));
+        givenFlushMatches(1);
+
+        buffer.react(postId, userId, Reaction.HEART);
+        buffer.flush();
+
+        ArgumentCaptor<Query> guard = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk).updateOne(guard.capture(), update.capture());
+        assertEquals("LIKE", guard.getValue().getQueryObject().get("userReactions." + userId));
+        assertEquals(new Document("reactionCounts.HEART", 1).append("reactionCounts.LIKE", -1),
+                update.getValue().getUpdateObject().get("$inc"));
+    }
+
+    @Test
+    void resyncsCountsWhenAnotherInstanceAppliedTheSameChange() {
+        givenStored(stored(5, false, null), stored(9, true, null));
+        givenFlushMatches(0);
+
+        buffer.toggleLike(postId, userId);
+        buffer.flush();
+
+        // The stored state already holds the like, so nothing is left to write
+        buffer.flush();
+        verify(bulk).execute();
+        verify(mongoTemplate, times(2)).findOne(any(Query.class), eq(Post.class));
+    }
+
+    @Test
+    void rewritesAChangeTheStoredStateStillLacks() {
+        // The reaction was removed elsewhere, so the guard on the old one misses
+        givenStored(stored(5, false, Reaction.LIKE), stored(7, false, null));
+        givenFlushMatches(0);
+
+        buffer.react(postId, userId, Reaction.HEART);
+        buffer.flush();
+
+        PostResponse response = response();
+        buffer.applyTo(response, userId);
+        assertEquals(7, response.getLikeCount());
+        assertEquals(Reaction.HEART, response.getUserReaction());
+        assertEquals(Map.of("HEART", 1), response.getReactionCounts());
+
+        buffer.flush();
+        ArgumentCaptor<Query> guards = ArgumentCaptor.forClass(Query.class);
+        verify(bulk, times(2)).updateOne(guards.capture(), any(Update.class));
+        assertEquals(new Document("$exists", false),
+                guards.getAllValues().get(1).getQueryObject().get("userReactions." + userId));
+    }
+
+    @Test
+    void keepsChangesWhenAFlushFails() {
+        givenStored(stored(5, false, null));
+        when(bulk.execute()).thenThrow(new IllegalStateException("network")).thenReturn(result(1));
+
+        buffer.toggleLike(postId, userId);
+        buffer.flush();
+        buffer.flush();
+
+        verify(bulk, times(2)).execute();
+        verify(bulk, times(2)).updateOne(any(Query.class), any(Update.class));
+    }
+
+    private PostResponse response() {
+        PostResponse response = new PostResponse();
+        response.setId(postId);
+        return response;
+    }
+
+    private void givenStored(Post first, Post... rest) {
+        when(mongoTemplate.findOne(any(Query.class), eq(Post.class))).thenReturn(first, rest);
+    }
+
+    private void givenFlushMatches(int matched) {
+        when(bulk.execute()).thenReturn(result(matched));
+    }
+
+    private static BulkWriteResult result(int matched) {
+        return BulkWriteResult.acknowledged(0, matched, 0, matched, List.of(), List.of());
+    }
+
+    private Post stored(int likeCount, boolean liked, Reaction reaction) {
+        Post post = new Post();
+        post.setId(postId);
+        post.setUserId(new ObjectId().toHexString());
+        post.setLikeCount(likeCount);
+        Set<String> likedBy = new HashSet<>();
+        if (liked) {
+            likedBy.add(userId);
+        }
+        post.setLikedByUsers(likedBy);
+        Map<String, Reaction> reactions = new HashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        if (reaction != null) {
+            reactions.put(userId, reaction);
+            counts.put(reaction.name(), 1);
+        }
+        post.setUserReactions(reactions);
+        post.setReactionCounts(counts);
+        return post;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.ReplaceOptions;
+
+class FileSystemMediaStoreTest {
+    @TempDir
+    Path directory;
+
+    private MongoTemplate mongoTemplate;
+    private MongoCollection<Document> files;
+    private FileSystemMediaStore store;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.getDb()).thenReturn(mock(MongoDatabase.class, RETURNS_DEEP_STUBS));
+        files = mock(MongoCollection.class);
+        when(mongoTemplate.getCollection("media.files")).thenReturn(files);
+        store = new FileSystemMediaStore(mongoTemplate, mock(MediaMetadataCache.class), directory.toString(), 24);
+        store.init();
+    }
+
+    @Test
+    void storesTheContentAndItsEntry() throws Exception {
+        byte[] content = {1, 2, 3};
+
+        ObjectId fileId = store.store("a.jpg", new ByteArrayInputStream(content), new Document());
+
+        assertArrayEquals(content, Files.readAllBytes(contentPath(fileId)));
+        verify(files).replaceOne(eq(new Document("_id", fileId)), any(Document.class), any(ReplaceOptions.class));
+    }
+
+    @Test
+    void deletesTheEntryOnlyAfterTheFile() throws Exception {
+        ObjectId fileId = store.store("a.jpg", new ByteArrayInputStream(new byte[]{1}), new Document());
+
+        store.delete(fileId);
+
+        assertFalse(Files.exists(contentPath(fileId)));
+        verify(files).deleteOne(new Document("_id", fileId));
+    }
+
+    @Test
+    void keepsTheEntryWhenTheFileCannotBeDeleted() throws Exception {
+        ObjectId fileId = new ObjectId();
+        // A non-empty directory in the file's place makes the delete fail
+        Files.createDirectories(contentPath(fileId).resolve("blocker"));
+
+        store.delete(fileId);
+
+        verify(files, never()).deleteOne(any(Document.class));
+    }
+
+    @Test
+    void sweepsOldFilesThatNeverGotAnEntry() throws Exception {
+        ObjectId orphan = writeContent(new ObjectId(), 48);
+        ObjectId catalogued = writeContent(new ObjectId(), 48);
+        ObjectId uploading = writeContent(new ObjectId(), 48);
+        ObjectId recent = writeContent(new ObjectId(), 1);
+        Path staleTemp = Files.writeString(directory.resolve("tmp").resolve("x.tmp"), "partial");
+        Files.setLastModifiedTime(staleTemp, hoursAgo(48));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("media.files")))
+                .thenReturn(List.of(new Document("_id", catalogued)));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("upload_sessions")))
+                .thenReturn(List.of(new Document("fileId", uploading.toHexString())));
+
+        store.sweepOrphans();
+
+        assertFalse(Files.exists(contentPath(orphan)));
+        assertTrue(Files.exists(contentPath(catalogued)));
+        assertTrue(Files.exists(contentPath(uploading)));
+        assertTrue(Files.exists(contentPath(recent)));
+        assertFalse(Files.exists(staleTemp));
+    }
+
+    private ObjectId writeContent(ObjectId fileId, int ageHours) throws Exception {
+        Path path = contentPath(fileId);
+        Files.createDirectories(path.getParent());
+        Files.write(path, new byte[]{1});
+        Files.setLastModifiedTime(path, hoursAgo(ageHours));
+        return fileId;
+    }
+
+    private Path contentPath(ObjectId fileId) {
+        String hex = fileId.toHexString();
+        return directory.resolve(hex.substring(22, 24)).resolve(hex.substring(20, 22)).resolve(hex);
+    }
+
+    private static FileTime hoursAgo(int hours) {
+        return FileTime.from(Instant.now().minus(hours, ChronoUnit.HOURS));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.client.result.DeleteResult;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MediaBlobServiceTest {
+    private final ObjectId fileId = new ObjectId();
+    private final Date scannedAt = new Date();
+
+    private MongoTemplate mongoTemplate;
+    private MediaStore mediaStore;
+    private MediaBlobService blobs;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        mediaStore = mock(MediaStore.class);
+        blobs = new MediaBlobService(mongoTemplate, mediaStore, mock(ImageVariantService.class),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void reclaimRequiresTheBlobToBeUnreferencedInTheSameRemove() {
+        givenBlob(0);
+        when(mongoTemplate.remove(any(Query.class), eq("media_blobs"))).thenReturn(DeleteResult.acknowledged(1));
+
+        assertTrue(blobs.reclaim(fileId, scannedAt));
+
+        ArgumentCaptor<Query> remove = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(remove.capture(), eq("media_blobs"));
+        assertEquals(new Document("$lte", 0), remove.getValue().getQueryObject().get("refCount"));
+        verify(mediaStore).delete(fileId);
+    }
+
+    @Test
+    void reclaimKeepsSharedContent() {
+        // A reference still counted, or one added after the scan, makes the guarded remove miss
+        givenBlob(2);
+        when(mongoTemplate.remove(any(Query.class), eq("media_blobs"))).thenReturn(DeleteResult.acknowledged(0));
+
+        assertFalse(blobs.reclaim(fileId, scannedAt));
+
+        verify(mediaStore, never()).delete(fileId);
+    }
+
+    @Test
+    void reclaimDeletesFilesStoredBeforeDeduplication() {
+        assertTrue(blobs.reclaim(fileId, scannedAt));
+
+        verify(mongoTemplate, never()).remove(any(Query.class), eq("media_blobs"));
+        verify(mediaStore).delete(fileId);
+    }
+
+    private void givenBlob(int refCount) {
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq("media_blobs")))
+                .thenReturn(new Document("_id", "digest").append("fileId", fileId).append("refCount", refCount));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MediaGarbageCollectorTest {
+    private final Map<String, List<Document>> collections = new HashMap<>();
+    private MediaGarbageCollector collector;
+
+    @BeforeEach
+    void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        // Answers $in and $or-of-$in filters the way the server would
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), anyString())).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            List<Document> matches = new ArrayList<>();
+            for (Document document : collections.getOrDefault(invocation.getArgument(2), List.of())) {
+                if (matches(query.getQueryObject(), document)) {
+                    matches.add(document);
+                }
+            }
+            return matches;
+        });
+        collector = new MediaGarbageCollector(mongoTemplate, mock(MediaStore.class), mock(MediaBlobService.class),
+                new SimpleMeterRegistry(), 100, 8, 60000, 600000, true, 500, 24);
+    }
+
+    @Test
+    void keepsProfilePicturesStoredAsBareIds() {
+        ObjectId avatar = new ObjectId();
+        store("users", new Document("profilePicture", avatar.toHexString()));
+
+        assertEquals(Set.of(avatar.toHexString()), collector.findReferenced(List.of(file(avatar))));
+    }
+
+    @Test
+    void keepsProfilePicturesStoredAsUrls() {
+        ObjectId avatar = new ObjectId();
+        store("users", new Document("profilePicture", "/api/media/" + avatar.toHexString()));
+
+        assertEquals(Set.of(avatar.toHexString()), collector.findReferenced(List.of(file(avatar))));
+    }
+
+    @Test
+    void matchesImageUrlsInEitherForm() {
+        ObjectId productImage = new ObjectId();
+        ObjectId tutorialImage = new ObjectId();
+        ObjectId postImage = new ObjectId();
+        store("products", new Document("imageUrls", List.of(productImage.toHexString())));
+        store("tutorials", new Document("imageUrls", List.of("/api/media/" + tutorialImage.toHexString())));
+        store("posts", new Document("imageUrls", List.of("/api/media/" + postImage.toHexString())));
+
+        Set<String> referenced = collector.findReferenced(
+                List.of(file(productImage), file(tutorialImage), file(postImage), file(new ObjectId())));
+
+        assertEquals(Set.of(productImage.toHexString(), tutorialImage.toHexString(), postImage.toHexString()),
+                referenced);
+    }
+
+    @Test
+    void keepsFilesWithQueuedReleasesOrOpenUploads() {
+        ObjectId queued = new ObjectId();
+        ObjectId uploading = new ObjectId();
+        store("media_gc_queue", new Document("fileId", queued));
+        store("upload_sessions", new Document("fileId", uploading.toHexString()));
+
+        assertEquals(Set.of(queued.toHexString(), uploading.toHexString()),
+                collector.findReferenced(List.of(file(queued), file(uploading))));
+    }
+
+    @Test
+    void reportsUnreferencedFiles() {
+        store("users", new Document("profilePicture", "https://example.com/avatar.png"));
+
+        assertEquals(Set.of(), collector.findReferenced(List.of(file(new ObjectId()))));
+    }
+
+    private void store(String collection, Document document) {
+        collections.computeIfAbsent(collection, name -> new ArrayList<>()).add(document);
+    }
+
+    private static boolean matches(Document filter, Document document) {
+        for (Map.Entry<String, Object> clause : filter.entrySet()) {
+            if ("$or".equals(clause.getKey())) {
+                if (((List<?>) clause.getValue()).stream().noneMatch(or -> matches((Document) or, document))) {
+                    return false;
+                }
+                continue;
+            }
+            Collection<?> wanted = (Collection<?>) ((Document) clause.getValue()).get("$in");
+            Object value = document.get(clause.getKey());
+            if (value == null) {
+                return false;
+            }
+            Collection<?> values = value instanceof Collection ? (Collection<?>) value : List.of(value);
+            if (values.stream().noneMatch(wanted::contains)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static GridFSFile file(ObjectId id) {
+        return new GridFSFile(new BsonObjectId(id), "image.jpg", 100, 261120, new Date(0), new Document());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.backend.service;
+
+import static com.example.backend.service.Mp4Fixtures.box;
+import static com.example.backend.service.Mp4Fixtures.concat;
+import static com.example.backend.service.Mp4Fixtures.ftyp;
+import static com.example.backend.service.Mp4Fixtures.largeBox;
+import static com.example.backend.service.Mp4Fixtures.mdat;
+import static com.example.backend.service.Mp4Fixtures.moov;
+import static com.example.backend.service.Mp4Fixtures.stco;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class Mp4BoxParserTest {
+
+    @Test
+    void readsMoovAtTheFront() throws Exception {
+        Mp4BoxParser.VideoInfo info = Mp4BoxParser.read(
+                new ByteArrayInputStream(concat(ftyp(), moov(stco(0)), mdat(64))));
+
+        assertEquals(5.0, info.getDurationSeconds());
+        assertEquals(640, info.getWidth());
+        assertEquals(360, info.getHeight());
+    }
+
+    @Test
+    void readsMoovAfterMdat() throws Exception {
+        Mp4BoxParser.VideoInfo info = Mp4BoxParser.read(
+                new ByteArrayInputStream(concat(ftyp(), mdat(20000), moov(stco(0)))));
+
+        assertEquals(5.0, info.getDurationSeconds());
+        assertEquals(640, info.getWidth());
+    }
+
+    @Test
+    void skipsBoxesWithA64BitSize() throws Exception {
+        Mp4BoxParser.VideoInfo info = Mp4BoxParser.read(
+                new ByteArrayInputStream(concat(ftyp(), largeBox("mdat", new byte[100]), moov(stco(0)))));
+
+        assertEquals(360, info.getHeight());
+    }
+
+    @Test
+    void acceptsHeadersSplitAcrossWrites() {
+        byte[] video = concat(ftyp(), mdat(100), moov(stco(0)));
+        Mp4BoxParser parser = new Mp4BoxParser();
+        for (byte b : video) {
+            parser.write(b);
+        }
+
+        assertTrue(parser.isComplete());
+        assertEquals(640, parser.finish().getWidth());
+    }
+
+    @Test
+    void rejectsFilesThatAreNotVideos() {
+        Mp4BoxParser parser = new Mp4BoxParser();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> parser.write("<html><body></body></html>".getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    @Test
+    void rejectsVideosWithoutAMovieHeader() {
+        Mp4BoxParser parser = new Mp4BoxParser();
+        byte[] video = concat(ftyp(), mdat(64));
+        parser.write(video, 0, video.length);
+
+        assertThrows(IllegalArgumentException.class, parser::finish);
+    }
+
+    @Test
+    void rejectsBoxesLargerThanTheirParent() {
+        byte[] truncated = box("moov", box("trak"));
+        // Claim more bytes for the trak box than the moov body holds
+        truncated[11] = (byte) 0x40;
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            Mp4BoxParser parser = new Mp4BoxParser();
+            parser.write(truncated, 0, truncated.length);
+            parser.finish();
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.backend.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds minimal synthetic ISO-BMFF boxes for parser and rewrite tests.
+ */
+final class Mp4Fixtures {
+    private Mp4Fixtures() {
+    }
+
+    static byte[] box(String type, byte[]... children) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] child : children) {
+            body.writeBytes(child);
+        }
+        return ByteBuffer.allocate(8 + body.size())
+                .putInt(8 + body.size())
+                .put(type.getBytes(StandardCharsets.ISO_8859_1))
+                .put(body.toByteArray())
+                .array();
+    }
+
+    /**
+     * A box with a 64-bit size field, as used for media data over 4 GiB.
+     */
+    static byte[] largeBox(String type, byte[] body) {
+        return ByteBuffer.allocate(16 + body.length)
+                .putInt(1)
+                .put(type.getBytes(StandardCharsets.ISO_8859_1))
+                .putLong(16 + body.length)
+                .put(body)
+                .array();
+    }
+
+    static byte[] ftyp() {
+        return box("ftyp", "isom".getBytes(StandardCharsets.ISO_8859_1), new byte[4]);
+    }
+
+    static byte[] mdat(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return box("mdat", data);
+    }
+
+    static byte[] mvhd(int timescale, int duration) {
+        return box("mvhd", ByteBuffer.allocate(100).putInt(12, timescale).putInt(16, duration).array());
+    }
+
+    static byte[] tkhd(int width, int height) {
+        // 16.16 fixed point after the matrix
+        return box("tkhd", ByteBuffer.allocate(84).putInt(76, width << 16).putInt(80, height << 16).array());
+    }
+
+    static byte[] stco(long... offsets) {
+        ByteBuffer body = ByteBuffer.allocate(8 + offsets.length * 4).putInt(0).putInt(offsets.length);
+        for (long offset : offsets) {
+            body.putInt((int) offset);
+        }
+        return box("stco", body.array());
+    }
+
+    static byte[] co64(long... offsets) {
+        ByteBuffer body = ByteBuffer.allocate(8 + offsets.length * 8).putInt(0).putInt(offsets.length);
+        for (long offset : offsets) {
+            body.putLong(offset);
+        }
+        return box("co64", body.array());
+    }
+
+    /**
+     * A movie with one video track whose chunk offsets are in the given table.
+     */
+    static byte[] moov(byte[] chunkOffsets) {
+        return box("moov",
+                mvhd(1000, 5000),
+                box("trak",
+                        tkhd(640, 360),
+                        box("mdia", box("minf", box("stbl", chunkOffsets)))));
+    }
+
+    static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads back the chunk offsets of the single stco or co64 table in a moov box.
+     */
+    static long[] chunkOffsets(byte[] moov) {
+        String text = new String(moov, StandardCharsets.ISO_8859_1);
+        int stco = text.indexOf("stco");
+        boolean wide = stco < 0;
+        int table = wide ? text.indexOf("co64") : stco;
+        ByteBuffer buffer = ByteBuffer.wrap(moov);
+        int count = buffer.getInt(table + 8);
+        long[] offsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            int position = table + 12 + i * (wide ? 8 : 4);
+            offsets[i] = wide ? buffer.getLong(position) : buffer.getInt(position) & 0xffffffffL;
+        }
+        return offsets;
+    }
+}
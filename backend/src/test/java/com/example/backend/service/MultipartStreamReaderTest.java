@@ -0,0 +1,149 @@
+package com.example.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class MultipartStreamReaderTest {
+    private static final String BOUNDARY = "----formBoundary7MA4YWxk";
+
+    @Test
+    void readsFieldsAndFilesAtEveryReadSize() throws Exception {
+        byte[] file = pattern(300);
+        byte[] body = body(
+                part("content", null, "hello\r\nworld".getBytes(StandardCharsets.UTF_8)),
+                part("image", "photo.jpg", file));
+
+        // Small reads split the delimiter, its line break and the headers at every position
+        for (int readSize = 1; readSize <= BOUNDARY.length() + 8; readSize++) {
+            MultipartStreamReader reader = new MultipartStreamReader(new TrickleInputStream(body, readSize), BOUNDARY);
+
+            MultipartStreamReader.Part content = reader.nextPart();
+            assertEquals("content", content.getName());
+            assertEquals("hello\r\nworld", content.readText(100));
+
+            MultipartStreamReader.Part image = reader.nextPart();
+            assertEquals("image", image.getName());
+            assertEquals("photo.jpg", image.getFilename());
+            assertEquals("image/jpeg", image.getContentType());
+            assertArrayEquals(file, image.getInputStream().readAllBytes(), "read size " + readSize);
+
+            assertNull(reader.nextPart());
+        }
+    }
+
+    @Test
+    void findsDelimitersAcrossBufferRefills() throws Exception {
+        // Parts sized so the delimiter straddles the end of the internal buffer at some offset
+        for (int size = 16384 - BOUNDARY.length() - 8; size <= 16384 + 8; size++) {
+            byte[] first = pattern(size);
+            byte[] second = pattern(size / 2);
+            byte[] body = body(part("a", "a.bin", first), part("b", "b.bin", second));
+            MultipartStreamReader reader = new MultipartStreamReader(new TrickleInputStream(body, 4096), BOUNDARY);
+
+            assertArrayEquals(first, reader.nextPart().getInputStream().readAllBytes(), "size " + size);
+            assertArrayEquals(second, reader.nextPart().getInputStream().readAllBytes(), "size " + size);
+            assertNull(reader.nextPart());
+        }
+    }
+
+    @Test
+    void keepsContentThatOnlyResemblesTheDelimiter() throws Exception {
+        byte[] tricky = ("line\r\n--" + BOUNDARY.substring(0, BOUNDARY.length() - 1) + "X\r\n--\r\n-")
+                .getBytes(StandardCharsets.ISO_8859_1);
+        byte[] body = body(part("file", "t.txt", tricky));
+
+        for (int readSize = 1; readSize <= 8; readSize++) {
+            MultipartStreamReader reader = new MultipartStreamReader(new TrickleInputStream(body, readSize), BOUNDARY);
+
+            assertArrayEquals(tricky, reader.nextPart().getInputStream().readAllBytes());
+            assertNull(reader.nextPart());
+        }
+    }
+
+    @Test
+    void skipsPartsTheCallerDidNotRead() throws Exception {
+        byte[] body = body(
+                part("ignored", "big.bin", pattern(50000)),
+                part("content", null, "kept".getBytes(StandardCharsets.UTF_8)));
+        MultipartStreamReader reader = new MultipartStreamReader(new ByteArrayInputStream(body), BOUNDARY);
+
+        reader.nextPart();
+        assertEquals("kept", reader.nextPart().readText(10));
+        assertNull(reader.nextPart());
+    }
+
+    @Test
+    void rejectsTruncatedBodies() throws Exception {
+        byte[] body = body(part("image", "photo.jpg", pattern(1000)));
+        byte[] truncated = Arrays.copyOf(body, body.length - BOUNDARY.length() - 10);
+        MultipartStreamReader reader = new MultipartStreamReader(new ByteArrayInputStream(truncated), BOUNDARY);
+
+        InputStream image = reader.nextPart().getInputStream();
+        assertThrows(IOException.class, image::readAllBytes);
+    }
+
+    @Test
+    void readsQuotedBoundaries() {
+        assertEquals(BOUNDARY, MultipartStreamReader.boundaryOf("multipart/form-data; boundary=\"" + BOUNDARY + "\""));
+        assertThrows(IllegalArgumentException.class, () -> MultipartStreamReader.boundaryOf("application/json"));
+    }
+
+    private static byte[] part(String name, String filename, byte[] content) {
+        StringBuilder headers = new StringBuilder("--" + BOUNDARY + "\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(name).append('"');
+        if (filename != null) {
+            headers.append("; filename=\"").append(filename).append("\"\r\nContent-Type: image/jpeg");
+        }
+        headers.append("\r\n\r\n");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(headers.toString().getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(content);
+        out.writeBytes("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        return out.toByteArray();
+    }
+
+    private static byte[] body(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        out.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        return out.toByteArray();
+    }
+
+    private static byte[] pattern(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + 7);
+        }
+        return bytes;
+    }
+
+    /**
+     * Hands out at most a fixed number of bytes per read, like a slow socket.
+     */
+    private static class TrickleInputStream extends ByteArrayInputStream {
+        private final int maxRead;
+
+        TrickleInputStream(byte[] bytes, int maxRead) {
+            super(bytes);
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, maxRead));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.example.backend.model.Comment;
+import com.example.backend.model.Post;
+import com.example.backend.model.UserSummary;
+import com.example.backend.repository.CommentRepository;
+import com.mongodb.client.result.DeleteResult;
+
+class PostCommentServiceTest {
+    private final String postId = new ObjectId().toHexString();
+    private final String ownerId = new ObjectId().toHexString();
+    private final String authorId = new ObjectId().toHexString();
+
+    private CommentRepository commentRepository;
+    private MongoTemplate mongoTemplate;
+    private UserSummaryService userSummaryService;
+    private PostCommentService comments;
+
+    @BeforeEach
+    void setUp() {
+        commentRepository = mock(CommentRepository.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        userSummaryService = mock(UserSummaryService.class);
+        comments = new PostCommentService(commentRepository, mongoTemplate, userSummaryService);
+    }
+
+    @Test
+    void addingACommentCountsItAndKeepsOnlyTheNewestInThePreview() {
+        when(mongoTemplate.exists(any(Query.class), eq(Post.class))).thenReturn(true);
+        when(userSummaryService.getSummary(authorId)).thenReturn(new UserSummary(authorId, "Ada", "Lovelace", null));
+        when(commentRepository.save(any(Comment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Post updated = post(1);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Post.class))).thenReturn(updated);
+
+        assertSame(updated, comments.addComment(postId, authorId, "hi"));
+
+        Document update = capturedUpdates().get(0).getUpdateObject();
+        assertEquals(new Document("commentCount", 1), update.get("$inc"));
+        Update.Modifiers push = (Update.Modifiers) ((Document) update.get("$push")).get("latestComments");
+        assertEquals(-PostCommentService.LATEST_COMMENTS_LIMIT, push.getModifiers().stream()
+                .filter(modifier -> "$slice".equals(modifier.getKey()))
+                .findFirst().orElseThrow().getValue());
+    }
+
+    @Test
+    void deletingDecrementsOnceAndRefreshesAgainstTheCountItRead() {
+        givenComment();
+        givenPost(post(4), post(3));
+        when(mongoTemplate.remove(any(Query.class), eq(Comment.class))).thenReturn(DeleteResult.acknowledged(1));
+        Comment remaining = comment();
+        when(commentRepository.findByPostIdOrderByCreatedAtDescIdDesc(eq(postId), any(Pageable.class)))
+                .thenReturn(List.of(remaining));
+        Post refreshed = post(3);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Post.class))).thenReturn(refreshed);
+
+        assertSame(refreshed, comments.deleteComment(postId, "c1", authorId));
+
+        ArgumentCaptor<Update> decrement = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), decrement.capture(), eq(Post.class));
+        assertEquals(new Document("commentCount", -1), decrement.getValue().getUpdateObject().get("$inc"));
+
+        ArgumentCaptor<Query> guard = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndModify(guard.capture(), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Post.class));
+        assertEquals(3, guard.getValue().getQueryObject().get("commentCount"));
+        assertEquals(new Document("latestComments", List.of(remaining)),
+                capturedUpdates().get(0).getUpdateObject().get("$set"));
+    }
+
+    @Test
+    void aCommentDeletedConcurrentlyIsOnlyCountedOnce() {
+        givenComment();
+        givenPost(post(2));
+        when(mongoTemplate.remove(any(Query.class), eq(Comment.class))).thenReturn(DeleteResult.acknowledged(0));
+
+        assertThrows(IllegalArgumentException.class, () -> comments.deleteComment(postId, "c1", authorId));
+
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(Post.class));
+        verify(mongoTemplate, never()).findAndModify(any(Query.class), any(Update.class),
+                any(FindAndModifyOptions.class), eq(Post.class));
+    }
+
+    @Test
+    void refreshRetriesWhenTheCountMovesUnderneathIt() {
+        givenComment();
+        // Another comment lands between reading the count and writing the preview
+        givenPost(post(2), post(3));
+        Post refreshed = post(3);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Post.class))).thenReturn(null, refreshed);
+
+        assertSame(refreshed, comments.updateComment(postId, "c1", authorId, "edited"));
+
+        ArgumentCaptor<Query> guards = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).findAndModify(guards.capture(), any(Update.class),
+                any(FindAndModifyOptions.class), eq(Post.class));
+        assertEquals(2, guards.getAllValues().get(0).getQueryObject().get("commentCount"));
+        assertEquals(3, guards.getAllValues().get(1).getQueryObject().get("commentCount"));
+    }
+
+    @Test
+    void refreshOfAnUncommentedPostMatchesAMissingCount() {
+        givenComment();
+        givenPost(post(0));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Post.class))).thenReturn(post(0));
+
+        comments.updateComment(postId, "c1", authorId, "edited");
+
+        ArgumentCaptor<Query> guard = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndModify(guard.capture(), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Post.class));
+        assertEquals(new Document("$in", Arrays.asList(0, null)),
+                guard.getValue().getQueryObject().get("commentCount"));
+    }
+
+    private List<Update> capturedUpdates() {
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), updates.capture(), any(FindAndModifyOptions.class),
+                eq(Post.class));
+        return updates.getAllValues();
+    }
+
+    private void givenComment() {
+        when(commentRepository.findById("c1")).thenReturn(Optional.of(comment()));
+    }
+
+    private void givenPost(Post first, Post... rest) {
+        when(mongoTemplate.findOne(any(Query.class), eq(Post.class))).thenReturn(first, rest);
+    }
+
+    private Comment comment() {
+        Comment comment = new Comment();
+        comment.setId("c1");
+        comment.setPostId(postId);
+        comment.setUserId(authorId);
+        comment.setContent("hi");
+        comment.setCreatedAt(LocalDateTime.now());
+        return comment;
+    }
+
+    private Post post(int commentCount) {
+        Post post = new Post();
+        post.setId(postId);
+        post.setUserId(ownerId);
+        post.setCommentCount(commentCount);
+        return post;
+    }
+}
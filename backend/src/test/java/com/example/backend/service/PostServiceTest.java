@@ -0,0 +1,143 @@
+package com.example.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.example.backend.model.CursorPage;
+import com.example.backend.model.Post;
+import com.example.backend.model.PostResponse;
+import com.example.backend.repository.PostRepository;
+import com.example.backend.repository.UserRepository;
+
+class PostServiceTest {
+    private MongoTemplate mongoTemplate;
+    private PostRepository postRepository;
+    private MediaGarbageCollector mediaGarbageCollector;
+    private PostService postService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        postRepository = mock(PostRepository.class);
+        mediaGarbageCollector = mock(MediaGarbageCollector.class);
+        UserSummaryService userSummaryService = mock(UserSummaryService.class);
+        when(userSummaryService.getSummaries(anySet())).thenReturn(Map.of());
+        postService = new PostService(
+                postRepository,
+                mock(UserRepository.class),
+                mongoTemplate,
+                userSummaryService,
+                mock(PostReactionService.class),
+                mock(PostCommentService.class),
+                mock(TimelineService.class),
+                mock(ResourceVersionService.class),
+                mock(EngagementBuffer.class),
+                mock(ImageVariantService.class),
+                mock(VideoFaststartService.class),
+                mock(MediaBlobService.class),
+                mock(MediaUploadService.class),
+                mediaGarbageCollector);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void servesTheFeedToAnonymousViewers() {
+        SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken(
+                "key", "anonymousUser", List.of(new SimpleGrantedAuthority("ROLE_ANONYMOUS"))));
+        when(mongoTemplate.find(any(Query.class), eq(Post.class))).thenReturn(List.of(post()));
+
+        CursorPage<PostResponse> page = postService.getFeedPage(null, 20);
+
+        assertEquals(1, page.getItems().size());
+        assertFalse(page.getItems().get(0).getIsLiked());
+        Document fields = feedQuery().getFieldsObject();
+        assertFalse(fields.containsKey("likedByUsers"));
+        assertFalse(fields.keySet().stream().anyMatch(field -> field.startsWith("userReactions")));
+    }
+
+    @Test
+    void projectsTheSignedInViewersOwnEngagement() {
+        String viewerId = new ObjectId().toHexString();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(viewerId, null, List.of()));
+        when(mongoTemplate.find(any(Query.class), eq(Post.class))).thenReturn(List.of(post()));
+
+        postService.getFeedPage(null, 20);
+
+        Document fields = feedQuery().getFieldsObject();
+        assertTrue(fields.containsKey("likedByUsers"));
+        assertTrue(fields.containsKey("userReactions." + viewerId));
+    }
+
+    @Test
+    void releasesTheMediaTheEditActuallyReplaced() {
+        Post read = post();
+        read.setMediaIds(List.of("a"));
+        Post replaced = post();
+        // Another edit swapped the media between the read and the write
+        replaced.setMediaIds(List.of("b"));
+        when(postRepository.findById(read.getId())).thenReturn(Optional.of(read));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Post.class))).thenReturn(replaced);
+
+        postService.updatePost(read.getId(), read.getUserId(), "edited", null);
+
+        verify(mediaGarbageCollector).enqueueRelease(List.of("b"));
+    }
+
+    @Test
+    void releasesOnlyItsOwnUploadsWhenThePostIsGone() {
+        Post read = post();
+        when(postRepository.findById(read.getId())).thenReturn(Optional.of(read));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> postService.updatePost(read.getId(), read.getUserId(), "edited", null));
+
+        verify(mediaGarbageCollector).enqueueRelease(List.of());
+    }
+
+    private Query feedQuery() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Post.class));
+        return query.getValue();
+    }
+
+    private static Post post() {
+        Post post = new Post();
+        post.setId(new ObjectId().toHexString());
+        post.setUserId(new ObjectId().toHexString());
+        post.setContent("hello");
+        post.setCreatedAt(LocalDateTime.now());
+        return post;
+    }
+}
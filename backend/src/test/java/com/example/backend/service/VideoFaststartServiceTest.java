@@ -0,0 +1,183 @@
+package com.example.backend.service;
+
+import static com.example.backend.service.Mp4Fixtures.chunkOffsets;
+import static com.example.backend.service.Mp4Fixtures.co64;
+import static com.example.backend.service.Mp4Fixtures.concat;
+import static com.example.backend.service.Mp4Fixtures.ftyp;
+import static com.example.backend.service.Mp4Fixtures.mdat;
+import static com.example.backend.service.Mp4Fixtures.moov;
+import static com.example.backend.service.Mp4Fixtures.stco;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.example.backend.model.ByteRange;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.result.UpdateResult;
+
+class VideoFaststartServiceTest {
+    private final ObjectId fileId = new ObjectId();
+    private final ObjectId rewrittenId = new ObjectId();
+    private final AtomicReference<byte[]> stored = new AtomicReference<>();
+
+    private MediaStore mediaStore;
+    private MongoCollection<Document> files;
+    private VideoFaststartService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        mediaStore = mock(MediaStore.class);
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        files = mock(MongoCollection.class);
+        when(mongoTemplate.getCollection("media.files")).thenReturn(files);
+        when(files.updateOne(any(Bson.class), any(Bson.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        service = new VideoFaststartService(mediaStore, mongoTemplate, mock(MediaMetadataCache.class), true, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void movesMoovAfterMdatToTheFrontAndShiftsStcoOffsets() throws Exception {
+        byte[] ftyp = ftyp();
+        byte[] mdat = mdat(64);
+        long mdatStart = ftyp.length;
+        byte[] moov = moov(stco(mdatStart + 8, mdatStart + 40));
+        storeOriginal(concat(ftyp, mdat, moov));
+
+        service.rewriteAsync(fileId);
+
+        assertEquals(rewrittenId, awaitSwitch());
+        byte[] result = stored.get();
+        byte[] movedMoov = Arrays.copyOfRange(result, ftyp.length, ftyp.length + moov.length);
+        assertArrayEquals(ftyp, Arrays.copyOfRange(result, 0, ftyp.length));
+        assertArrayEquals(mdat, Arrays.copyOfRange(result, ftyp.length + moov.length, result.length));
+        assertArrayEquals(new long[] {mdatStart + 8 + moov.length, mdatStart + 40 + moov.length},
+                chunkOffsets(movedMoov));
+    }
+
+    @Test
+    void shiftsCo64Offsets() throws Exception {
+        byte[] ftyp = ftyp();
+        byte[] mdat = mdat(64);
+        long mdatStart = ftyp.length;
+        byte[] moov = moov(co64(mdatStart + 8, mdatStart + 40));
+        storeOriginal(concat(ftyp, mdat, moov));
+
+        service.rewriteAsync(fileId);
+
+        assertEquals(rewrittenId, awaitSwitch());
+        byte[] movedMoov = Arrays.copyOfRange(stored.get(), ftyp.length, ftyp.length + moov.length);
+        assertArrayEquals(new long[] {mdatStart + 8 + moov.length, mdatStart + 40 + moov.length},
+                chunkOffsets(movedMoov));
+    }
+
+    @Test
+    void servesFilesWithMoovFirstAsUploaded() throws Exception {
+        byte[] ftyp = ftyp();
+        byte[] moov = moov(stco(0));
+        storeOriginal(concat(ftyp, moov, mdat(64)));
+
+        service.rewriteAsync(fileId);
+
+        assertEquals(fileId, awaitSwitch());
+        verify(mediaStore, never()).store(anyString(), any(InputStream.class), any(Document.class));
+    }
+
+    @Test
+    void leavesOffsetsOutsideTheMovedRangeAlone() {
+        byte[] moov = moov(stco(8, 100, 900));
+
+        assertTrue(VideoFaststartService.shiftChunkOffsets(moov, 50, 800, 200));
+
+        assertArrayEquals(new long[] {8, 300, 900}, chunkOffsets(moov));
+    }
+
+    @Test
+    void bailsOutWhenAShiftedStcoOffsetNoLongerFitsInt32() {
+        long moovStart = 0xfffffff0L;
+        byte[] moov = moov(stco(100, moovStart - 4));
+
+        assertFalse(VideoFaststartService.shiftChunkOffsets(moov, 16, moovStart, moov.length));
+    }
+
+    @Test
+    void shiftsCo64OffsetsPastInt32() {
+        long moovStart = 0xfffffff0L;
+        byte[] moov = moov(co64(100, moovStart - 4));
+
+        assertTrue(VideoFaststartService.shiftChunkOffsets(moov, 16, moovStart, moov.length));
+
+        assertArrayEquals(new long[] {100 + moov.length, moovStart - 4 + moov.length}, chunkOffsets(moov));
+    }
+
+    @Test
+    void rejectsMoviesWithoutChunkOffsetTables() {
+        byte[] moov = Mp4Fixtures.box("moov", Mp4Fixtures.mvhd(1000, 5000));
+
+        assertFalse(VideoFaststartService.shiftChunkOffsets(moov, 16, 100, moov.length));
+    }
+
+    private void storeOriginal(byte[] bytes) throws Exception {
+        GridFSFile original = file(fileId, bytes.length);
+        when(mediaStore.find(fileId)).thenReturn(original);
+        when(mediaStore.openStream(original)).thenAnswer(invocation -> new ByteArrayInputStream(bytes));
+        doAnswer(invocation -> {
+            ByteRange range = invocation.getArgument(1);
+            OutputStream out = invocation.getArgument(2);
+            out.write(bytes, (int) range.getStart(), (int) range.getLength());
+            return null;
+        }).when(mediaStore).copyRange(any(GridFSFile.class), any(ByteRange.class), any(OutputStream.class));
+        when(mediaStore.store(anyString(), any(InputStream.class), any(Document.class))).thenAnswer(invocation -> {
+            InputStream content = invocation.getArgument(1);
+            stored.set(content.readAllBytes());
+            return rewrittenId;
+        });
+        when(mediaStore.find(rewrittenId)).thenAnswer(invocation -> file(rewrittenId, stored.get().length));
+    }
+
+    /**
+     * Waits for the rewrite to point the original at the file to serve and returns that id.
+     */
+    private ObjectId awaitSwitch() {
+        ArgumentCaptor<Bson> update = ArgumentCaptor.forClass(Bson.class);
+        verify(files, timeout(5000)).updateOne(any(Bson.class), update.capture());
+        Document set = (Document) ((Document) update.getValue()).get("$set");
+        return set.getObjectId("metadata.faststart");
+    }
+
+    private static GridFSFile file(ObjectId id, long length) {
+        return new GridFSFile(new BsonObjectId(id), "clip.mp4", length, 261120, new Date(),
+                new Document("type", "video"));
+    }
+}
@@ -24,8 +24,11 @@ function Post({
   const [showComments, setShowComments] = useState(false);
   const [showAllComments, setShowAllComments] = useState(false);
   const [comments, setComments] = useState(post.comments || []);
+  const [commentCount, setCommentCount] = useState(post.commentCount ?? (post.comments || []).length);
+  const [olderCommentsCursor, setOlderCommentsCursor] = useState(null);
+  const [loadingComments, setLoadingComments] = useState(false);
   const [newComment, setNewComment] = useState("");
-  const [editingCommentIndex, setEditingCommentIndex] = useState(null);
+  const [editingCommentId, setEditingCommentId] = useState(null);
   const [editCommentContent, setEditCommentContent] = useState('');
   const [currentReaction, setCurrentReaction] = useState(() => {
     const savedReaction = localStorage.getItem(`post_${post.id}_reaction`);
@@ -39,7 +42,7 @@ function Post({
   const user = JSON.parse(localStorage.getItem("user"));
   const defaultAvatarUrl = `${process.env.REACT_APP_API_URL || 'http://localhost:8081'}/images/default-avatar.png`;
 
-  const visibleComments = showAllComments ? comments : comments.slice(0, 2);
+  const visibleComments = showAllComments ? comments : comments.slice(-2);
 
   const formatDate = (dateString) => {
     const date = new Date(dateString);
@@ -252,7 +255,36 @@ function Post({
     }
   };
 
+  // The post only carries its newest comments; older ones are paged in on demand
+  const fetchComments = async (cursor = null) => {
+    try {
+      setLoadingComments(true);
+      const response = await axiosInstance.get(`/api/posts/${post.id}/comments`, {
+        params: { cursor, limit: 20 }
+      });
+      const olderFirst = [...response.data.items].reverse();
+      setComments(prevComments => cursor ? [...olderFirst, ...prevComments] : olderFirst);
+      setOlderCommentsCursor(response.data.nextCursor);
+    } catch (error) {
+      console.error('Error loading comments:', error);
+      setError("Failed to load comments");
+      setTimeout(() => setError(null), 3000);
+    } finally {
+      setLoadingComments(false);
+    }
+  };
+
+  const applyCommentResponse = (data) => {
+    setComments(data.comments || []);
+    setCommentCount(data.commentCount ?? (data.comments || []).length);
+    setOlderCommentsCursor(null);
+    setShowAllComments(false);
+  };
+
   const handleCommentClick = () => {
+    if (!showAllComments && commentCount > comments.length) {
+      fetchComments();
+    }
     setShowAllComments(!showAllComments);
   };
 
@@ -270,7 +302,7 @@ function Post({
           }
         }
       );
-      setComments(response.data.comments);
+      applyCommentResponse(response.data);
       setNewComment("");
       Swal.fire({
         title: 'Success!',
@@ -295,13 +327,12 @@ function Post({
     }
   };
 
-  const handleEditComment = (index, content) => {
-    const commentContent = content.split(": ")[1];
-    setEditingCommentIndex(index);
-    setEditCommentContent(commentContent);
+  const handleEditComment = (comment) => {
+    setEditingCommentId(comment.id);
+    setEditCommentContent(comment.content);
   };
 
-  const handleUpdateComment = async (index) => {
+  const handleUpdateComment = async (commentId) => {
     if (!editCommentContent.trim()) return;
     
     try {
@@ -310,7 +341,7 @@ function Post({
       formData.append('content', editCommentContent.trim());
 
       const response = await axiosInstance.put(
-        `/api/posts/${post.id}/comments/${index}`,
+        `/api/posts/${post.id}/comments/${commentId}`,
         formData,
         {
           headers: {
@@ -318,8 +349,8 @@ function Post({
           }
         }
       );
-      setComments(response.data.comments);
-      setEditingCommentIndex(null);
+      applyCommentResponse(response.data);
+      setEditingCommentId(null);
       setEditCommentContent('');
     } catch (error) {
       console.error('Error updating comment:', error);
@@ -328,7 +359,7 @@ function Post({
     }
   };
 
-  const handleDeleteComment = async (index) => {
+  const handleDeleteComment = async (commentId) => {
     const result = await Swal.fire({
       title: 'Are you sure?',
       text: "You won't be able to revert this!",
@@ -342,12 +373,12 @@ function Post({
     if (result.isConfirmed) {
       try {
         const response = await axiosInstance.delete(
-          `/api/posts/${post.id}/comments/${index}`,
+          `/api/posts/${post.id}/comments/${commentId}`,
           {
             params: { userId: user.id }
           }
         );
-        setComments(response.data.comments);
+        applyCommentResponse(response.data);
         Swal.fire({
           title: 'Deleted!',
           text: 'Comment has been deleted.',
@@ -391,7 +422,7 @@ function Post({
             params: { userId: user.id }
           }
         );
-        setComments(response.data.comments);
+        applyCommentResponse(response.data);
         Swal.fire({
           title: 'Deleted!',
           text: 'All comments have been deleted.',
@@ -417,20 +448,17 @@ function Post({
   };
   //delete comment
   const canDeleteComment = (comment) => {
-    const authorId = comment.split('|')[0];
     // Only comment author can delete their comment 
-    return user && user.id === authorId;
+    return user && user.id === comment.userId;
   };
 
   const isCommentAuthor = (comment) => {
-    const authorId = comment.split('|')[0];
     // Only comment author can edit their comment
-    return user && user.id === authorId;
+    return user && user.id === comment.userId;
   };
 
   const getCommentContent = (comment) => {
-    const parts = comment.split('|');
-    return parts[1];
+    return `${comment.authorName}: ${comment.content}`;
   };
 
   const handleReaction = async (reactionType) => {
@@ -827,7 +855,7 @@ function Post({
                     d="M8 12h.01M12 12h.01M16 12h.01M21 12c0 4.418-4.03 8-9 8a9.863 9.863 0 01-4.255-.949L3 20l1.395-3.72C3.512 15.042 3 13.574 3 12c0-4.418 4.03-8 9-8s9 3.582 9 8z" 
                   />
                 </svg>
-                <span className="font-medium">{comments.length}</span>
+                <span className="font-medium">{commentCount}</span>
               </button>
 
               <div className="relative">
@@ -897,7 +925,7 @@ function Post({
 
             <div className={`overflow-hidden transition-all duration-300 ease-in-out ${showComments ? 'max-h-screen' : 'max-h-0'}`}>
               <div className="space-y-3 pt-2">
-                {window.location.pathname.includes('/profile') && user?.id === post.userId && comments.length > 0 && (
+                {window.location.pathname.includes('/profile') && user?.id === post.userId && commentCount > 0 && (
                   <button
                     onClick={handleDeleteAllComments}
                     className="w-full px-4 py-2 text-red-600 hover:bg-red-50 rounded-lg transition-colors duration-200 flex items-center justify-center gap-2"
@@ -910,13 +938,22 @@ function Post({
                     Delete All Comments
                   </button>
                 )}
-                {visibleComments.map((comment, index) => (
+                {showAllComments && olderCommentsCursor && (
+                  <button
+                    onClick={() => fetchComments(olderCommentsCursor)}
+                    disabled={loadingComments}
+                    className="text-sm text-blue-500 hover:text-blue-600 transition-colors duration-200 w-full py-2 rounded-lg hover:bg-blue-50 disabled:opacity-50"
+                  >
+                    {loadingComments ? 'Loading...' : 'Load older comments'}
+                  </button>
+                )}
+                {visibleComments.map((comment) => (
                   <div 
-                    key={index} 
+                    key={comment.id} 
                     className="p-3 bg-gray-50 rounded-lg transition-all duration-200 hover:bg-gray-100 relative group"
                   >
                     <div className="flex justify-between items-start">
-                      {editingCommentIndex === index ? (
+                      {editingCommentId === comment.id ? (
                         <div className="flex-1 flex gap-2">
                           <input
                             type="text"
@@ -926,13 +963,13 @@ function Post({
                             autoFocus
                           />
                           <button
-                            onClick={() => handleUpdateComment(index)}
+                            onClick={() => handleUpdateComment(comment.id)}
                             className="px-3 py-1 bg-blue-500 text-white rounded-lg hover:bg-blue-600 transition-colors duration-200"
                           >
                             Save
                           </button>
                           <button
-                            onClick={() => setEditingCommentIndex(null)}
+                            onClick={() => setEditingCommentId(null)}
                             className="px-3 py-1 bg-gray-200 text-gray-700 rounded-lg hover:bg-gray-300 transition-colors duration-200"
                           >
                             Cancel
@@ -947,7 +984,7 @@ function Post({
                             {isCommentAuthor(comment) && (
                               <>
                                 <button
-                                  onClick={() => handleEditComment(index, comment)}
+                                  onClick={() => handleEditComment(comment)}
                                   className="text-gray-500 hover:text-blue-500 text-sm transition-colors duration-200"
                                   aria-label="Edit comment"
                                 >
@@ -961,7 +998,7 @@ function Post({
                             )}
                             {canDeleteComment(comment) && (
                               <button
-                                onClick={() => handleDeleteComment(index)}
+                                onClick={() => handleDeleteComment(comment.id)}
                                 className="text-gray-500 hover:text-red-500 text-sm transition-colors duration-200"
                                 aria-label="Delete comment"
                               >
@@ -979,7 +1016,7 @@ function Post({
                   </div>
                 ))}
                 
-                {comments.length > 2 && (
+                {commentCount > 2 && (
                   <button
                     onClick={handleCommentClick}
                     className="text-sm text-blue-500 hover:text-blue-600 mb-2 transition-colors duration-200 flex items-center justify-center w-full py-2 rounded-lg hover:bg-blue-50"
@@ -996,7 +1033,7 @@ function Post({
                         <svg className="w-4 h-4 mr-1" fill="none" stroke="currentColor" viewBox="0 0 24 24">
                           <path strokeLinecap="round" strokeLinejoin="round" strokeWidth="2" d="M19 9l-7 7-7-7" />
                         </svg>
-                        Show {comments.length - 2} more comments
+                        Show {commentCount - 2} more comments
                       </>
                     )}
                   </button>
@@ -1047,7 +1084,14 @@ Post.propTypes = {
     videoUrl: PropTypes.string,
     imageUrls: PropTypes.arrayOf(PropTypes.string),
     likes: PropTypes.number,
-    comments: PropTypes.arrayOf(PropTypes.string),
+    comments: PropTypes.arrayOf(PropTypes.shape({
+      id: PropTypes.string.isRequired,
+      userId: PropTypes.string,
+      authorName: PropTypes.string,
+      content: PropTypes.string,
+      createdAt: PropTypes.string
+    })),
+    commentCount: PropTypes.number,
     createdAt: PropTypes.string,
     likeCount: PropTypes.number,
     isLiked: PropTypes.bool,
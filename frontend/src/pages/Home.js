@@ -6,6 +6,8 @@ import axiosInstance from "../utils/axios";
 
 function Home() {
   const [posts, setPosts] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState(null);
   const [isRefreshing, setIsRefreshing] = useState(false);
@@ -23,6 +25,7 @@ function Home() {
   const defaultAvatarUrl = "/images/default-avatar.png";
   const maxRetries = 3;
   const retryDelay = 1000; // 1 second delay between retries
+  const FEED_PAGE_SIZE = 20;
 
   useEffect(() => {
     const handleOnline = () => setIsOffline(false);
@@ -46,8 +49,11 @@ function Home() {
     try {
       setError(null);
       if (!isRefreshing) setLoading(true);
-      const response = await axiosInstance.get("/api/posts");
-      setPosts(response.data);
+      const response = await axiosInstance.get("/api/posts", {
+        params: { limit: FEED_PAGE_SIZE }
+      });
+      setPosts(response.data.items);
+      setNextCursor(response.data.nextCursor);
       setRetryCount(0); // Reset retry count on success
     } catch (err) {
       console.error("Error fetching posts:", err);
@@ -73,6 +79,23 @@ function Home() {
     }
   };
 
+  const fetchMorePosts = async () => {
+    if (!nextCursor || loadingMore) return;
+    try {
+      setLoadingMore(true);
+      const response = await axiosInstance.get("/api/posts", {
+        params: { cursor: nextCursor, limit: FEED_PAGE_SIZE }
+      });
+      setPosts(prevPosts => [...prevPosts, ...response.data.items]);
+      setNextCursor(response.data.nextCursor);
+    } catch (err) {
+      console.error("Error fetching more posts:", err);
+      setError("Failed to load more posts. Please try again.");
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   const fetchSuggestedProfiles = async (attempt = 0) => {
     try {
       setProfilesLoading(true);
@@ -605,6 +628,18 @@ function Home() {
           ))}
         </div>
 
+        {nextCursor && (
+          <div className="mt-6 text-center">
+            <button
+              onClick={fetchMorePosts}
+              disabled={loadingMore}
+              className="px-6 py-2 bg-white rounded-full shadow-sm text-blue-600 font-medium hover:text-blue-800 hover:shadow-md transition-all disabled:opacity-50"
+            >
+              {loadingMore ? 'Loading...' : 'Load more posts'}
+            </button>
+          </div>
+        )}
+
         {posts.length === 0 && (
           <div className="text-center py-16">
             <div className="mx-auto h-32 w-32 text-gray-300 mb-6 animate-float">